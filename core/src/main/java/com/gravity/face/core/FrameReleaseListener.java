@@ -0,0 +1,8 @@
+package com.gravity.face.core;
+
+import com.gravity.face.core.utils.ImageFrame;
+
+public interface FrameReleaseListener {
+    //The pipeline no longer reads the frame, its buffers can be recycled
+    void onFrameReleased(ImageFrame frame);
+}
@@ -0,0 +1,143 @@
+package com.gravity.face.core;
+
+import com.gravity.face.core.utils.LimitedSizeQueue;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+//Interpreters of one model and configuration, a slot is used by a single thread between acquire and release
+final class InterpreterPool {
+
+    private final String key;
+    private final String modelPath;
+    private final InterpreterSlot[] slots;
+    private final LimitedSizeQueue<InterpreterSlot> idle;
+    private boolean closed;
+    //Guarded by ModelRegistry
+    int references;
+
+    InterpreterPool(String key, String modelPath, MappedByteBuffer model, Interpreter.Options options, int numInterpreters) {
+        this.key = key;
+        this.modelPath = modelPath;
+        this.slots = new InterpreterSlot[numInterpreters];
+        this.idle = new LimitedSizeQueue<>(numInterpreters);
+        for (int i = 0; i < numInterpreters; i++) {
+            this.slots[i] = new InterpreterSlot(i, new Interpreter(model, options));
+            this.idle.add(this.slots[i]);
+        }
+    }
+
+    //Null for a pool private to one solution
+    String getKey() {
+        return this.key;
+    }
+
+    String getModelPath() {
+        return this.modelPath;
+    }
+
+    int size() {
+        return this.slots.length;
+    }
+
+    //Only for tensor metadata, which does not change while other slots run
+    Interpreter getMetadataInterpreter() {
+        return this.slots[0].interpreter;
+    }
+
+    //Blocks while every slot is busy, returns null once the pool is closed
+    InterpreterSlot acquire() throws InterruptedException {
+        InterpreterSlot slot = this.idle.take();
+        if (slot == null)
+            return null;
+        synchronized (this) {
+            if (this.closed)
+                return null;
+            slot.busy = true;
+        }
+        return slot;
+    }
+
+    void release(InterpreterSlot slot) {
+        synchronized (this) {
+            slot.busy = false;
+            //The pool closed while the slot was running, nobody else will close its interpreter
+            if (this.closed) {
+                slot.interpreter.close();
+                return;
+            }
+        }
+        this.idle.add(slot);
+    }
+
+    //Busy interpreters are closed when their slot is released
+    synchronized void close() {
+        if (this.closed)
+            return;
+        this.closed = true;
+        this.idle.close();
+        for (InterpreterSlot slot : this.slots) {
+            if (!slot.busy)
+                slot.interpreter.close();
+        }
+    }
+
+    static final class InterpreterSlot {
+        final int index;
+        final Interpreter interpreter;
+        //Output bindings per batch size, created by the first solution running on the slot with that batch size.
+        //Solutions only share a pool when they opted in, and then use the same layout.
+        final Map<Integer, Binding> bindings = new HashMap<>();
+        //Model input shape and the batch size the input tensor is currently resized to
+        int[] inputShape;
+        int batchSize;
+        private boolean busy;
+
+        private InterpreterSlot(int index, Interpreter interpreter) {
+            this.index = index;
+            this.interpreter = interpreter;
+        }
+    }
+
+    //Outputs an interpreter writes into, reused by every run with the same batch size.
+    //Byte buffer outputs also get a float view, so results are read without copying them into arrays.
+    static final class Binding {
+        final Map<Integer, Object> outputs;
+        private final FloatBuffer[] floatOutputs;
+
+        Binding(Map<Integer, Object> outputs) {
+            this.outputs = outputs;
+            int size = 0;
+            for (Integer index : outputs.keySet())
+                size = Math.max(size, index + 1);
+            this.floatOutputs = new FloatBuffer[size];
+            for (Map.Entry<Integer, Object> output : outputs.entrySet()) {
+                if (output.getValue() instanceof ByteBuffer)
+                    this.floatOutputs[output.getKey()] = ((ByteBuffer) output.getValue()).asFloatBuffer();
+            }
+        }
+
+        //The interpreter copies outputs at the buffer position, so every run starts from the beginning
+        void rewind() {
+            for (Object output : this.outputs.values()) {
+                if (output instanceof Buffer)
+                    ((Buffer) output).rewind();
+            }
+        }
+
+        //Null for outputs that are not byte buffers
+        FloatBuffer getFloatOutput(int index) {
+            if (index < 0 || index >= this.floatOutputs.length || this.floatOutputs[index] == null)
+                return null;
+            FloatBuffer floatOutput = this.floatOutputs[index];
+            floatOutput.clear();
+            return floatOutput;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.gravity.face.core;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.tensorflow.lite.Interpreter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+//Process wide reference counted models and interpreter pools.
+//Mapped models are shared by asset path, pools only by the key of solutions opting into sharing them.
+final class ModelRegistry {
+
+    private static final Map<String, SharedModel> models = new HashMap<>();
+    private static final Map<String, InterpreterPool> pools = new HashMap<>();
+
+    private ModelRegistry() {
+    }
+
+    //Options are only used when the pool does not exist yet, a null key always creates a private pool
+    static synchronized InterpreterPool acquire(AssetManager assetManager, String modelPath, @Nullable String key,
+                                                Interpreter.Options options, int numInterpreters) throws IOException {
+        InterpreterPool pool = key != null ? pools.get(key) : null;
+        if (pool == null) {
+            SharedModel model = models.get(modelPath);
+            if (model == null)
+                model = new SharedModel(loadModel(assetManager, modelPath));
+            pool = new InterpreterPool(key, modelPath, model.buffer, options, numInterpreters);
+            model.references++;
+            models.put(modelPath, model);
+            if (key != null)
+                pools.put(key, pool);
+        }
+        pool.references++;
+        return pool;
+    }
+
+    static synchronized void release(InterpreterPool pool) {
+        if (pool.references == 0 || --pool.references > 0)
+            return;
+
+        if (pool.getKey() != null)
+            pools.remove(pool.getKey());
+        pool.close();
+        SharedModel model = models.get(pool.getModelPath());
+        if (model != null && --model.references == 0)
+            models.remove(pool.getModelPath());
+    }
+
+    private static MappedByteBuffer loadModel(AssetManager assetManager, String modelPath) throws IOException {
+        AssetFileDescriptor fileDescriptor = assetManager.openFd(modelPath);
+        try (FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor())) {
+            FileChannel fileChannel = inputStream.getChannel();
+            long startOffset = fileDescriptor.getStartOffset();
+            long declaredLength = fileDescriptor.getDeclaredLength();
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+        }
+    }
+
+    private static final class SharedModel {
+        private final MappedByteBuffer buffer;
+        private int references;
+
+        private SharedModel(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
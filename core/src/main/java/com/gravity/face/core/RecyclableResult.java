@@ -0,0 +1,64 @@
+package com.gravity.face.core;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+//Result that can be borrowed from a ResultPool, whoever receives a pooled result owns it until release
+public abstract class RecyclableResult {
+
+    public interface ReleaseListener {
+        void onReleased(RecyclableResult result);
+    }
+
+    //Set while the result is borrowed from a pool
+    private ResultPool<?> pool;
+    private boolean released;
+    private ReleaseListener releaseListener;
+    //Result this one was made from, released together with it
+    private RecyclableResult source;
+    ResultPool.LeakTracker leakTracker;
+
+    //Hands the frame and, for pooled results, the result back for reuse.
+    //The result and everything it returned must not be used afterwards, a second call does nothing.
+    public final void release() {
+        ResultPool<?> pool;
+        ReleaseListener releaseListener;
+        RecyclableResult source;
+        synchronized (this) {
+            if (this.released)
+                return;
+            this.released = true;
+            pool = this.pool;
+            this.pool = null;
+            releaseListener = this.releaseListener;
+            source = this.source;
+            this.source = null;
+        }
+        if (releaseListener != null)
+            releaseListener.onReleased(this);
+        if (source != null)
+            source.release();
+        if (pool != null)
+            pool.recycle(this);
+    }
+
+    //Called by release before the result is recycled
+    public final synchronized void setReleaseListener(@Nullable ReleaseListener releaseListener) {
+        this.releaseListener = releaseListener;
+    }
+
+    public final synchronized void setSource(@Nullable RecyclableResult source) {
+        this.source = source;
+    }
+
+    public final synchronized boolean isPooled() {
+        return this.pool != null;
+    }
+
+    synchronized void setPool(ResultPool<?> pool) {
+        this.pool = pool;
+        this.released = false;
+    }
+
+    //Drops references to frames and bitmaps, nested objects may be kept to be filled again
+    protected abstract void recycle();
+}
@@ -0,0 +1,106 @@
+package com.gravity.face.core;
+
+import com.gravity.face.core.utils.LimitedSizeQueue;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Bounded pool of results, a released result is filled again for a later frame.
+//Never blocks, results are created while the pool is empty and dropped when more than capacity are released.
+public final class ResultPool<T extends RecyclableResult> {
+
+    public interface Factory<T> {
+        T create();
+    }
+
+    private final Factory<T> factory;
+    private final LimitedSizeQueue<T> free;
+    private final AtomicLong outstandingCount;
+    private final AtomicLong createdCount;
+    //Leak detection, disabled without a listener
+    private final ErrorListener leakListener;
+    private final ReferenceQueue<RecyclableResult> collected;
+    private final Set<LeakTracker> trackers;
+
+    public ResultPool(int capacity, @NonNull Factory<T> factory) {
+        this(capacity, factory, null);
+    }
+
+    //Results garbage collected without release are reported to the leak listener with the stack that acquired them.
+    //Capturing the stack costs an allocation per result, meant for debugging.
+    public ResultPool(int capacity, @NonNull Factory<T> factory, @Nullable ErrorListener leakListener) {
+        this.factory = Objects.requireNonNull(factory);
+        this.free = new LimitedSizeQueue<>(capacity);
+        this.outstandingCount = new AtomicLong();
+        this.createdCount = new AtomicLong();
+        this.leakListener = leakListener;
+        this.collected = new ReferenceQueue<>();
+        this.trackers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    }
+
+    public T acquire() {
+        if (this.leakListener != null)
+            this.reportLeaks();
+
+        T result = this.free.poll();
+        if (result == null) {
+            result = this.factory.create();
+            this.createdCount.incrementAndGet();
+        }
+        if (this.leakListener != null) {
+            result.leakTracker = new LeakTracker(result, this.collected);
+            this.trackers.add(result.leakTracker);
+        }
+        result.setPool(this);
+        this.outstandingCount.incrementAndGet();
+        return result;
+    }
+
+    //Results acquired and not released yet
+    public long getOutstandingCount() {
+        return this.outstandingCount.get();
+    }
+
+    public long getCreatedCount() {
+        return this.createdCount.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    void recycle(RecyclableResult result) {
+        if (result.leakTracker != null) {
+            this.trackers.remove(result.leakTracker);
+            result.leakTracker.clear();
+            result.leakTracker = null;
+        }
+        result.recycle();
+        this.outstandingCount.decrementAndGet();
+        this.free.add((T) result);
+    }
+
+    private void reportLeaks() {
+        LeakTracker tracker;
+        while ((tracker = (LeakTracker) this.collected.poll()) != null) {
+            if (this.trackers.remove(tracker)) {
+                this.outstandingCount.decrementAndGet();
+                this.leakListener.onError(new IllegalStateException("Result was garbage collected without being released", tracker.acquisition));
+            }
+        }
+    }
+
+    static final class LeakTracker extends WeakReference<RecyclableResult> {
+        private final Throwable acquisition;
+
+        private LeakTracker(RecyclableResult result, ReferenceQueue<RecyclableResult> queue) {
+            super(result, queue);
+            this.acquisition = new Throwable("Acquired here");
+        }
+    }
+}
@@ -1,33 +1,53 @@
 package com.gravity.face.core;
 
 import android.content.Context;
-import android.content.res.AssetFileDescriptor;
-import android.content.res.AssetManager;
+
+import com.gravity.face.core.InterpreterPool.Binding;
+import com.gravity.face.core.InterpreterPool.InterpreterSlot;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.tensorflow.lite.Interpreter;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 public abstract class SolutionBase<T, U> {
 
-    //Tensorflow lite interpreter;
-    private Interpreter interpreter;
+    //Tensorflow lite interpreters, only the mapped model is shared unless the solution opts into sharing them
+    private final InterpreterPool pool;
+    private volatile boolean closed;
     //Listeners
     private ResultListener<U> resultListener;
     private ErrorListener errorListener;
 
     protected SolutionBase(@NonNull Context context) {
+        this(context, 1);
+    }
+
+    protected SolutionBase(@NonNull Context context, int numInterpreters) {
+        this(context, numInterpreters, false);
+    }
+
+    //Shared interpreters serialize independent solutions of the same class and pool size on the same slots
+    protected SolutionBase(@NonNull Context context, int numInterpreters, boolean shareInterpreters) {
+        if (numInterpreters < 1)
+            throw new IllegalArgumentException("Number of interpreters must be greater than 0, numInterpreters: " + numInterpreters);
+
         try {
-            MappedByteBuffer model = this.loadModel(context.getAssets(), getModelPath());
             Interpreter.Options options = this.getInterpreterOptions();
-            this.interpreter = new Interpreter(model, options);
+            //Split the cores between interpreters instead of letting each one spawn a thread per core
+            if (numInterpreters > 1)
+                options.setNumThreads(Math.max(1, Runtime.getRuntime().availableProcessors() / numInterpreters));
+
+            //Interpreter options are fixed per solution class, so the class stands for them in the key
+            String key = shareInterpreters ? getModelPath() + "|" + this.getClass().getName() + "|" + numInterpreters : null;
+            this.pool = ModelRegistry.acquire(context.getAssets(), getModelPath(), key, options, numInterpreters);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -41,25 +61,102 @@ public abstract class SolutionBase<T, U> {
         this.errorListener = listener;
     }
 
-    protected final synchronized void interpret(@NonNull T input) {
+    //Runs the input on an idle interpreter, blocking while all of them are busy.
+    //The returned invocation owns the interpreter output buffers until it is closed, null on failure.
+    @Nullable
+    protected final Invocation interpret(@NonNull T input) {
+        return this.invoke(input, null);
+    }
+
+    //Stacks the inputs along the batch dimension of input tensor 0 and runs them in a single call.
+    //The batch is padded to a bucket size, outputs hold getBatchSize() rows of which the first inputs.size() are valid.
+    //Output buffers are created once per bucket and interpreter, returning direct buffers from createOutputs
+    //and reusing the input arrays keeps the whole call free of allocations.
+    @Nullable
+    protected final Invocation interpretBatch(@NonNull List<T> inputs) {
+        return this.invoke(null, inputs);
+    }
+
+    @Nullable
+    private Invocation invoke(@Nullable T input, @Nullable List<T> batch) {
+        InterpreterSlot slot = null;
         try {
-            this.checkNotClose();
-            Object[] inputs = this.getInputs(Objects.requireNonNull(input));
-            Map<Integer, Object> outputs = this.getOutputs();
-            this.interpreter.runForMultipleInputsOutputs(inputs, outputs);
+            slot = this.acquire();
+            Object[] inputs;
+            int batchSize;
+            if (batch == null) {
+                inputs = this.getInputs(Objects.requireNonNull(input), slot.index);
+                batchSize = this.getModelBatchSize(slot);
+            } else {
+                if (batch.isEmpty())
+                    throw new IllegalArgumentException("Batch must not be empty");
+                batchSize = this.getBucketSize(batch.size());
+                inputs = this.getBatchInputs(batch, batchSize, slot.index);
+            }
+            Binding binding = this.prepare(slot, batchSize);
+            binding.rewind();
+            slot.interpreter.runForMultipleInputsOutputs(inputs, binding.outputs);
+            return new Invocation(slot, binding, batchSize);
         } catch (IllegalStateException e) {
+            this.release(slot);
             this.close();
             this.sendError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.sendError(e);
         } catch (Exception e) {
+            this.release(slot);
             this.sendError(e);
         }
+        return null;
+    }
+
+    private int getModelBatchSize(InterpreterSlot slot) {
+        if (slot.inputShape == null) {
+            slot.inputShape = slot.interpreter.getInputTensor(0).shape();
+            slot.batchSize = slot.inputShape[0];
+        }
+        return slot.inputShape[0];
+    }
+
+    //Next power of two of the batch size capped at getMaxBatchSize(), so an interpreter resizes and reallocates
+    //its tensors once per bucket instead of once for every batch size it sees
+    private int getBucketSize(int batchSize) {
+        int bucketSize = batchSize > 1 ? Integer.highestOneBit(batchSize - 1) << 1 : 1;
+        return Math.max(batchSize, Math.min(bucketSize, this.getMaxBatchSize()));
+    }
+
+    //Resizes the input only when the batch size changed since the last call on this interpreter
+    private Binding prepare(InterpreterSlot slot, int batchSize) throws Exception {
+        this.getModelBatchSize(slot);
+        if (slot.batchSize != batchSize) {
+            int[] shape = slot.inputShape.clone();
+            shape[0] = batchSize;
+            slot.interpreter.resizeInput(0, shape);
+            slot.interpreter.allocateTensors();
+            slot.batchSize = batchSize;
+        }
+        Binding binding = slot.bindings.get(batchSize);
+        if (binding == null) {
+            binding = new Binding(this.createOutputs(batchSize));
+            slot.bindings.put(batchSize, binding);
+        }
+        return binding;
+    }
+
+    //Direct native order buffer for a float output of the given shape with the first dimension set to batchSize
+    protected static ByteBuffer allocateFloatOutput(int[] shape, int batchSize) {
+        int size = batchSize;
+        for (int i = 1; i < shape.length; i++)
+            size *= shape[i];
+        return ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.nativeOrder());
     }
 
     @Nullable
     protected final int[] getOutputTensorShape(int index) {
         try {
             this.checkNotClose();
-            return this.interpreter.getOutputTensor(index).shape();
+            return this.pool.getMetadataInterpreter().getOutputTensor(index).shape();
         } catch (IllegalStateException e) {
             this.close();
             this.sendError(e);
@@ -67,13 +164,23 @@ public abstract class SolutionBase<T, U> {
         }
     }
 
+    //Largest batch the solution passes to interpretBatch, the last bucket
+    protected int getMaxBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    protected final int getNumInterpreters() {
+        return this.pool.size();
+    }
+
     protected boolean isClosed() {
-        return this.interpreter == null;
+        return this.closed;
     }
 
     public void close() {
-        if (this.interpreter != null) {
-            this.interpreter = null;
+        if (!this.closed) {
+            this.closed = true;
+            ModelRegistry.release(this.pool);
         }
     }
 
@@ -88,25 +195,82 @@ public abstract class SolutionBase<T, U> {
     }
 
     private void checkNotClose() {
-        if (this.interpreter == null) {
+        if (this.closed) {
             throw new IllegalStateException("Internal error: The Interpreter has already been closed.");
         }
     }
 
-    private MappedByteBuffer loadModel(AssetManager assetManager, String modelPath) throws IOException {
-        AssetFileDescriptor fileDescriptor = assetManager.openFd(modelPath);
-        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-        FileChannel fileChannel = inputStream.getChannel();
-        long startOffset = fileDescriptor.getStartOffset();
-        long declaredLength = fileDescriptor.getDeclaredLength();
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    private InterpreterSlot acquire() throws InterruptedException {
+        this.checkNotClose();
+        InterpreterSlot slot = this.pool.acquire();
+        if (slot == null)
+            throw new IllegalStateException("Internal error: The Interpreter has already been closed.");
+        return slot;
+    }
+
+    private void release(@Nullable InterpreterSlot slot) {
+        if (slot != null)
+            this.pool.release(slot);
     }
 
     protected abstract Interpreter.Options getInterpreterOptions();
 
     protected abstract String getModelPath();
 
-    protected abstract Object[] getInputs(T input) throws Exception;
+    //Slot identifies the interpreter the inputs are prepared for, from 0 to getNumInterpreters() - 1
+    protected abstract Object[] getInputs(T input, int slot) throws Exception;
+
+    //Packs the inputs into tensors whose first dimension is batchSize, at least inputs.size().
+    //Rows past the inputs are padding, their content is free as their outputs are never read.
+    protected abstract Object[] getBatchInputs(List<T> inputs, int batchSize, int slot) throws Exception;
+
+    //Called once per interpreter and batch size, every interpreter writes into its own output buffers.
+    //Output shapes are the ones of getOutputTensorShape with the first dimension set to batchSize,
+    //outputs may be arrays or direct buffers from allocateFloatOutput.
+    protected abstract Map<Integer, Object> createOutputs(int batchSize) throws Exception;
+
+    //Outputs of one interpret call, closing it hands the interpreter back to the pool
+    protected final class Invocation implements AutoCloseable {
+        private final int index;
+        private final Binding binding;
+        private final int batchSize;
+        private InterpreterSlot slot;
 
-    protected abstract Map<Integer, Object> getOutputs() throws Exception;
+        private Invocation(InterpreterSlot slot, Binding binding, int batchSize) {
+            this.index = slot.index;
+            this.binding = binding;
+            this.batchSize = batchSize;
+            this.slot = slot;
+        }
+
+        public int getSlot() {
+            return this.index;
+        }
+
+        //Rows of the outputs, padding included
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        public Object getOutput(int index) {
+            if (this.slot == null)
+                throw new IllegalStateException("Invocation has already been closed.");
+            return this.binding.outputs.get(index);
+        }
+
+        //Float view of a byte buffer output positioned at its start, null for array outputs
+        public FloatBuffer getFloatOutput(int index) {
+            if (this.slot == null)
+                throw new IllegalStateException("Invocation has already been closed.");
+            return this.binding.getFloatOutput(index);
+        }
+
+        @Override
+        public void close() {
+            if (this.slot != null) {
+                release(this.slot);
+                this.slot = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.gravity.face.core.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.Objects;
+
+public final class BitmapFrame implements ImageFrame {
+
+    private final Bitmap bitmap;
+
+    public BitmapFrame(Bitmap bitmap) {
+        this.bitmap = Objects.requireNonNull(bitmap);
+    }
+
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.bitmap.getHeight();
+    }
+
+    @Override
+    public void getPixels(int row, int[] columns, int count, int[] pixels, int[] rowBuffer) {
+        int width = this.bitmap.getWidth();
+        this.bitmap.getPixels(rowBuffer, 0, width, 0, row, width, 1);
+        for (int i = 0; i < count; i++)
+            pixels[i] = columns[i] < 0 ? 0 : rowBuffer[columns[i]];
+    }
+
+    @Override
+    public long getByteCount() {
+        return this.bitmap.getAllocationByteCount();
+    }
+}
@@ -0,0 +1,66 @@
+package com.gravity.face.core.utils;
+
+import java.util.Objects;
+
+//Window of another frame, rows and columns are relative to the window. Not thread safe.
+public final class CroppedFrame implements ImageFrame {
+
+    private final ImageFrame frame;
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+    //Columns translated to the frame, and a row buffer wide enough for the frame
+    private int[] columns = new int[0];
+    private int[] row = new int[0];
+
+    public CroppedFrame(ImageFrame frame, int left, int top, int width, int height) {
+        this.frame = Objects.requireNonNull(frame);
+        if (left < 0 || top < 0 || width < 1 || height < 1 || left + width > frame.getWidth() || top + height > frame.getHeight())
+            throw new IllegalArgumentException("Window is not inside the frame, left: " + left + ", top: " + top + ", width: " + width + ", height: " + height);
+
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    public ImageFrame getFrame() {
+        return frame;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public void getPixels(int row, int[] columns, int count, int[] pixels, int[] rowBuffer) {
+        if (this.columns.length < count)
+            this.columns = new int[count];
+        if (this.row.length < this.frame.getWidth())
+            this.row = new int[this.frame.getWidth()];
+        for (int i = 0; i < count; i++)
+            this.columns[i] = columns[i] < 0 ? -1 : columns[i] + this.left;
+        this.frame.getPixels(row + this.top, this.columns, count, pixels, this.row);
+    }
+
+    //Shares the pixels of the frame
+    @Override
+    public long getByteCount() {
+        return 0;
+    }
+}
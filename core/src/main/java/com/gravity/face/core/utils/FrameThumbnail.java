@@ -0,0 +1,40 @@
+package com.gravity.face.core.utils;
+
+import android.graphics.Bitmap;
+
+//Nearest neighbor downscaled copy of a frame, small enough to keep with a result
+public final class FrameThumbnail {
+
+    private FrameThumbnail() {
+    }
+
+    //Keeps the aspect ratio with the longer side at most maxSize, frames already smaller are copied at their size
+    public static Bitmap create(ImageFrame frame, int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("MaxSize must be greater than 0, maxSize: " + maxSize);
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        float scale = Math.min(1.0f, (float) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, Math.round(width * scale));
+        int targetHeight = Math.max(1, Math.round(height * scale));
+
+        int[] columns = new int[targetWidth];
+        for (int column = 0; column < targetWidth; column++)
+            columns[column] = toSource(column, width, targetWidth);
+        int[] pixels = new int[targetWidth];
+        int[] row = new int[width];
+        int[] colors = new int[targetWidth * targetHeight];
+        for (int targetRow = 0; targetRow < targetHeight; targetRow++) {
+            frame.getPixels(toSource(targetRow, height, targetHeight), columns, targetWidth, pixels, row);
+            System.arraycopy(pixels, 0, colors, targetRow * targetWidth, targetWidth);
+        }
+        return Bitmap.createBitmap(colors, targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+    }
+
+    //Samples at the target pixel center like an unfiltered bitmap scale
+    private static int toSource(int target, int sourceSize, int targetSize) {
+        int source = (int) ((target + 0.5f) * sourceSize / targetSize);
+        return Math.min(source, sourceSize - 1);
+    }
+}
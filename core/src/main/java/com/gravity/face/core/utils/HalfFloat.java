@@ -0,0 +1,59 @@
+package com.gravity.face.core.utils;
+
+//IEEE 754 half precision conversions, android.util.Half needs API 26
+public final class HalfFloat {
+
+    private HalfFloat() {
+    }
+
+    //Rounds to the nearest half, ties to even
+    public static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        //Infinity and NaN
+        if (exponent == 0xFF)
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+
+        int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1F)
+            return (short) (sign | 0x7C00);
+        //Subnormal half or zero
+        if (halfExponent <= 0) {
+            if (halfExponent < -10)
+                return (short) sign;
+            mantissa |= 0x800000;
+            int shift = 14 - halfExponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0))
+                half++;
+            return (short) (sign | half);
+        }
+
+        //A carry out of the mantissa moves to the next exponent, up to infinity
+        int half = (halfExponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0))
+            half++;
+        return (short) (sign | half);
+    }
+
+    public static float toFloat(short half) {
+        int bits = half & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+
+        if (exponent == 0) {
+            float value = mantissa * (1.0f / (1 << 24));
+            return sign != 0 ? -value : value;
+        }
+        if (exponent == 0x1F)
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,16 @@
+package com.gravity.face.core.utils;
+
+//Image seen in upright orientation, read row by row by the model input samplers
+public interface ImageFrame {
+
+    int getWidth();
+
+    int getHeight();
+
+    //Writes the ARGB pixel of every requested column of an upright row, negative columns are black.
+    //RowBuffer holds at least getWidth() pixels, frames reading whole rows use it as scratch.
+    void getPixels(int row, int[] columns, int count, int[] pixels, int[] rowBuffer);
+
+    //Pixel memory the frame keeps alive, for memory budgets
+    long getByteCount();
+}
@@ -1,39 +1,261 @@
 package com.gravity.face.core.utils;
 
-import java.util.LinkedList;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+//Preallocated multi producer multi consumer ring buffer that drops the oldest element when full.
+//Slots carry sequence numbers so producers and consumers only contend on a compare and set of head or tail.
+//Producers reserve their element in count before publishing it, so concurrent producers never go past the capacity.
 public final class LimitedSizeQueue<E> {
 
+    public interface DropListener<E> {
+        void onDropped(E e);
+    }
+
     private final int capacity;
-    private final LinkedList<E> queue;
-    private final ReadWriteLock lock;
+    //One spare slot, sequence numbers can not tell a full slot from an empty one in a single slot ring
+    private final int slots;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+    //Elements reserved by producers and not dequeued yet, at most capacity
+    private final AtomicInteger count;
+    //Counters
+    private final AtomicLong addedCount;
+    private final AtomicLong droppedCount;
+    //Called for every element dropped by add or close, null when nobody has to know
+    private final DropListener<E> dropListener;
+    //Blocking consumers and producers only take the lock once the buffer is empty or full
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final AtomicInteger waiters;
+    private final AtomicInteger producerWaiters;
+    private volatile boolean closed;
 
     public LimitedSizeQueue(int capacity) {
+        this(capacity, null);
+    }
+
+    public LimitedSizeQueue(int capacity, DropListener<E> dropListener) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be greater than 0, capacity: " + capacity);
+
         this.capacity = capacity;
-        this.queue = new LinkedList<>();
-        this.lock = new ReentrantReadWriteLock();
+        this.slots = capacity + 1;
+        this.elements = new AtomicReferenceArray<>(this.slots);
+        this.sequences = new AtomicLongArray(this.slots);
+        for (int i = 0; i < this.slots; i++) {
+            this.sequences.set(i, i);
+        }
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+        this.count = new AtomicInteger();
+        this.addedCount = new AtomicLong();
+        this.droppedCount = new AtomicLong();
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.notFull = this.lock.newCondition();
+        this.waiters = new AtomicInteger();
+        this.producerWaiters = new AtomicInteger();
+        this.dropListener = dropListener;
     }
 
     public boolean add(E e) {
-        lock.writeLock().lock();
+        if (e == null)
+            throw new NullPointerException();
+        if (this.closed)
+            return false;
+
+        while (!this.tryOffer(e)) {
+            this.drop(this.dequeue());
+        }
+        this.addedCount.incrementAndGet();
+        this.dropIfClosed();
+        this.signalNotEmpty();
+        return true;
+    }
+
+    //Blocks while the queue is full instead of dropping, returns false once the queue is closed
+    public boolean put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (this.closed)
+            return false;
+
+        if (!this.tryOffer(e)) {
+            this.lock.lockInterruptibly();
+            this.producerWaiters.incrementAndGet();
+            try {
+                while (!this.tryOffer(e)) {
+                    if (this.closed)
+                        return false;
+                    this.notFull.await();
+                }
+            } finally {
+                this.producerWaiters.decrementAndGet();
+                this.lock.unlock();
+            }
+        }
+        this.addedCount.incrementAndGet();
+        this.dropIfClosed();
+        this.signalNotEmpty();
+        return true;
+    }
+
+    public E poll() {
+        E e = this.dequeue();
+        if (e != null)
+            this.signalNotFull();
+        return e;
+    }
+
+    //Blocks until an element is available, returns null once the queue is closed
+    public E take() throws InterruptedException {
+        E e = this.poll();
+        if (e != null)
+            return e;
+        if (this.closed)
+            return null;
+
+        this.lock.lockInterruptibly();
+        this.waiters.incrementAndGet();
         try {
-            if (this.queue.size() >= capacity) {
-                this.queue.removeFirst();
+            while ((e = this.dequeue()) == null && !this.closed) {
+                this.notEmpty.await();
             }
-            return this.queue.add(e);
         } finally {
-            lock.writeLock().unlock();
+            this.waiters.decrementAndGet();
+            this.lock.unlock();
         }
+        //An element dequeued while close races is still handed out, dropping it silently would lose it
+        if (e != null)
+            this.signalNotFull();
+        return e;
     }
 
-    public E poll() {
-        lock.readLock().lock();
+    //Drops pending elements and wakes every blocked consumer
+    public void close() {
+        this.closed = true;
+        this.dropIfClosed();
+        this.lock.lock();
+        try {
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int size() {
+        return this.count.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getAddedCount() {
+        return addedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    //Reserves a place for the element and publishes it, false when the queue is full
+    private boolean tryOffer(E e) {
+        while (true) {
+            int count = this.count.get();
+            if (count >= this.capacity)
+                return false;
+            if (this.count.compareAndSet(count, count + 1))
+                break;
+        }
+        if (this.offer(e))
+            return true;
+        this.count.decrementAndGet();
+        return false;
+    }
+
+    private boolean offer(E e) {
+        while (true) {
+            long position = this.tail.get();
+            int index = (int) (position % this.slots);
+            long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.elements.lazySet(index, e);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    private E dequeue() {
+        while (true) {
+            long position = this.head.get();
+            int index = (int) (position % this.slots);
+            long difference = this.sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (this.head.compareAndSet(position, position + 1)) {
+                    E e = this.elements.get(index);
+                    this.elements.lazySet(index, null);
+                    this.sequences.lazySet(index, position + this.slots);
+                    this.count.decrementAndGet();
+                    return e;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    //An element offered after close has drained the buffer would never be taken nor dropped
+    private void dropIfClosed() {
+        if (!this.closed)
+            return;
+        E e;
+        while ((e = this.dequeue()) != null) {
+            this.drop(e);
+        }
+    }
+
+    private void drop(E e) {
+        if (e == null)
+            return;
+        this.droppedCount.incrementAndGet();
+        if (this.dropListener != null)
+            this.dropListener.onDropped(e);
+    }
+
+    private void signalNotFull() {
+        if (this.producerWaiters.get() == 0)
+            return;
+        this.lock.lock();
+        try {
+            this.notFull.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void signalNotEmpty() {
+        if (this.waiters.get() == 0)
+            return;
+        this.lock.lock();
         try {
-            return this.queue.poll();
+            this.notEmpty.signal();
         } finally {
-            lock.readLock().unlock();
+            this.lock.unlock();
         }
     }
 }
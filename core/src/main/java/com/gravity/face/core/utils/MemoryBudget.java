@@ -0,0 +1,62 @@
+package com.gravity.face.core.utils;
+
+//Bytes of frames retained by a pipeline, bounded by maxBytes unless it is -1.
+//A frame larger than the whole budget still fits while nothing else is retained.
+public final class MemoryBudget {
+
+    private final long maxBytes;
+    private long usedBytes;
+    private boolean closed;
+
+    public MemoryBudget(long maxBytes) {
+        if (maxBytes < 1 && maxBytes != -1)
+            throw new IllegalArgumentException("MaxBytes must be greater than 0 or -1, maxBytes: " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized boolean tryAcquire(long bytes) {
+        if (!this.fits(bytes))
+            return false;
+        this.usedBytes += bytes;
+        return true;
+    }
+
+    //Blocks until the bytes fit, returns false once the budget is closed
+    public synchronized boolean acquire(long bytes) throws InterruptedException {
+        while (!this.closed && !this.fits(bytes)) {
+            this.wait();
+        }
+        if (this.closed)
+            return false;
+        this.usedBytes += bytes;
+        return true;
+    }
+
+    //Accounts bytes retained anyway, like frames of synchronous calls, even past the budget
+    public synchronized void forceAcquire(long bytes) {
+        this.usedBytes += bytes;
+    }
+
+    public synchronized void release(long bytes) {
+        this.usedBytes = Math.max(0, this.usedBytes - bytes);
+        this.notifyAll();
+    }
+
+    //Wakes every blocked acquire
+    public synchronized void close() {
+        this.closed = true;
+        this.notifyAll();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private boolean fits(long bytes) {
+        return this.maxBytes == -1 || this.usedBytes == 0 || this.usedBytes + bytes <= this.maxBytes;
+    }
+}
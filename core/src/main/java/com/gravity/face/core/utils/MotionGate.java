@@ -0,0 +1,146 @@
+package com.gravity.face.core.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Tells frames that barely differ from the last processed one, so its result can be reused instead of running inference.
+//Frames are reduced to a grid of mean luminances, sampled sparsely so the signature costs a few rows of the frame.
+//A frame only becomes the reference once its result is committed, so a reused result always belongs to the reference.
+public final class MotionGate<R> {
+
+    //Signature cells per side and samples per cell side
+    private static final int GRID_SIZE = 16;
+    private static final int CELL_SAMPLES = 4;
+    private static final int NUM_SAMPLES = GRID_SIZE * CELL_SAMPLES;
+    //Spare signatures kept for frames in flight
+    private static final int MAX_SPARE_SIGNATURES = 4;
+
+    private final float maxDifference;
+    private final int maxReusedFrames;
+    private final int[] columns;
+    private final int[] pixels;
+    private int[] row = new int[0];
+    private final ArrayDeque<Signature> spareSignatures;
+    //Signature and result of the last committed frame, null until the first commit
+    private Signature reference;
+    private R result;
+    private int reusedFrames;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+
+    //MaxDifference is the mean luminance change per cell out of 255, at most maxReusedFrames frames in a row are reused
+    public MotionGate(float maxDifference, int maxReusedFrames) {
+        if (maxDifference <= 0)
+            throw new IllegalArgumentException("MaxDifference must be greater than 0, maxDifference: " + maxDifference);
+        if (maxReusedFrames < 1)
+            throw new IllegalArgumentException("MaxReusedFrames must be greater than 0, maxReusedFrames: " + maxReusedFrames);
+
+        this.maxDifference = maxDifference;
+        this.maxReusedFrames = maxReusedFrames;
+        this.columns = new int[NUM_SAMPLES];
+        this.pixels = new int[NUM_SAMPLES];
+        this.spareSignatures = new ArrayDeque<>(MAX_SPARE_SIGNATURES);
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+    }
+
+    //Signature of the frame, handed back through reuse on a hit and through commit or discard on a miss
+    public synchronized Signature sign(ImageFrame frame) {
+        Signature signature = this.spareSignatures.poll();
+        if (signature == null)
+            signature = new Signature();
+        this.sign(frame, signature);
+        return signature;
+    }
+
+    //Result of the reference when the frame barely changed, the signature is then recycled.
+    //Null when the frame has to be processed, its result is committed with the signature afterwards.
+    public synchronized R reuse(Signature signature) {
+        boolean unchanged = this.reference != null && this.reference.width == signature.width && this.reference.height == signature.height &&
+                this.reusedFrames < this.maxReusedFrames && this.getDifference(signature) <= this.maxDifference;
+        if (!unchanged) {
+            this.missCount.incrementAndGet();
+            return null;
+        }
+        this.reusedFrames++;
+        this.hitCount.incrementAndGet();
+        this.recycle(signature);
+        return this.result;
+    }
+
+    //Makes the processed frame the one later frames are compared with
+    public synchronized void commit(Signature signature, R result) {
+        if (this.reference != null)
+            this.recycle(this.reference);
+        this.reference = signature;
+        this.result = Objects.requireNonNull(result);
+        this.reusedFrames = 0;
+    }
+
+    //Processing the frame failed, the reference stays as it was
+    public synchronized void discard(Signature signature) {
+        this.recycle(signature);
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    private void recycle(Signature signature) {
+        if (this.spareSignatures.size() < MAX_SPARE_SIGNATURES)
+            this.spareSignatures.add(signature);
+    }
+
+    private void sign(ImageFrame frame, Signature signature) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        for (int column = 0; column < NUM_SAMPLES; column++)
+            this.columns[column] = toSource(column, width);
+        if (this.row.length < width)
+            this.row = new int[width];
+
+        signature.width = width;
+        signature.height = height;
+        Arrays.fill(signature.sums, 0);
+        for (int sample = 0; sample < NUM_SAMPLES; sample++) {
+            frame.getPixels(toSource(sample, height), this.columns, NUM_SAMPLES, this.pixels, this.row);
+            int cellOffset = sample / CELL_SAMPLES * GRID_SIZE;
+            for (int column = 0; column < NUM_SAMPLES; column++) {
+                int pixel = this.pixels[column];
+                //Integer BT.601 luminance
+                int luminance = (((pixel >> 16) & 0xFF) * 77 + ((pixel >> 8) & 0xFF) * 150 + (pixel & 0xFF) * 29) >> 8;
+                signature.sums[cellOffset + column / CELL_SAMPLES] += luminance;
+            }
+        }
+    }
+
+    private float getDifference(Signature signature) {
+        long difference = 0;
+        for (int i = 0; i < signature.sums.length; i++)
+            difference += Math.abs(signature.sums[i] - this.reference.sums[i]);
+        return (float) difference / (signature.sums.length * CELL_SAMPLES * CELL_SAMPLES);
+    }
+
+    //Samples at the cell pixel centers, frames smaller than the grid repeat pixels
+    private static int toSource(int sample, int size) {
+        int source = (int) ((sample + 0.5f) * size / NUM_SAMPLES);
+        return Math.min(source, size - 1);
+    }
+
+    //Luminance sums of a frame
+    public static final class Signature {
+        private final int[] sums;
+        private int width;
+        private int height;
+
+        private Signature() {
+            this.sums = new int[GRID_SIZE * GRID_SIZE];
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.gravity.face.core.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+//Interleaved 8 bit RGBA pixels read in place, like RGBA_8888 image analysis output
+public final class RgbaFrame extends RotatedImageFrame {
+
+    private static final int PIXEL_STRIDE = 4;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int rowStride;
+
+    //Buffer is read from its current position
+    public RgbaFrame(ByteBuffer buffer, int width, int height, int rowStride, int rotation) {
+        super(width, height, rotation);
+        if (rowStride < width * PIXEL_STRIDE)
+            throw new IllegalArgumentException("Row stride must be at least width * 4, rowStride: " + rowStride);
+        this.buffer = Objects.requireNonNull(buffer);
+        this.offset = buffer.position();
+        this.rowStride = rowStride;
+    }
+
+    @Override
+    public long getByteCount() {
+        return (long) this.rowStride * this.getSensorHeight();
+    }
+
+    @Override
+    int getSensorPixel(int x, int y) {
+        int index = this.offset + y * this.rowStride + x * PIXEL_STRIDE;
+        int r = this.buffer.get(index) & 0xFF;
+        int g = this.buffer.get(index + 1) & 0xFF;
+        int b = this.buffer.get(index + 2) & 0xFF;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
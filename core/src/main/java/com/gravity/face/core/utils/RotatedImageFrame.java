@@ -0,0 +1,65 @@
+package com.gravity.face.core.utils;
+
+//Frame stored in sensor orientation, rotation is the clockwise angle that makes it upright
+abstract class RotatedImageFrame implements ImageFrame {
+
+    private final int sensorWidth;
+    private final int sensorHeight;
+    private final int rotation;
+
+    RotatedImageFrame(int sensorWidth, int sensorHeight, int rotation) {
+        if (sensorWidth < 1 || sensorHeight < 1)
+            throw new IllegalArgumentException("Frame size must be greater than 0, width: " + sensorWidth + ", height: " + sensorHeight);
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270)
+            throw new IllegalArgumentException("Rotation must be 0, 90, 180 or 270, rotation: " + rotation);
+        this.sensorWidth = sensorWidth;
+        this.sensorHeight = sensorHeight;
+        this.rotation = rotation;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    int getSensorHeight() {
+        return sensorHeight;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.rotation == 90 || this.rotation == 270 ? this.sensorHeight : this.sensorWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.rotation == 90 || this.rotation == 270 ? this.sensorWidth : this.sensorHeight;
+    }
+
+    @Override
+    public void getPixels(int row, int[] columns, int count, int[] pixels, int[] rowBuffer) {
+        for (int i = 0; i < count; i++) {
+            int column = columns[i];
+            if (column < 0) {
+                pixels[i] = 0;
+                continue;
+            }
+            switch (this.rotation) {
+                case 90:
+                    pixels[i] = this.getSensorPixel(row, this.sensorHeight - 1 - column);
+                    break;
+                case 180:
+                    pixels[i] = this.getSensorPixel(this.sensorWidth - 1 - column, this.sensorHeight - 1 - row);
+                    break;
+                case 270:
+                    pixels[i] = this.getSensorPixel(this.sensorWidth - 1 - row, column);
+                    break;
+                default:
+                    pixels[i] = this.getSensorPixel(column, row);
+                    break;
+            }
+        }
+    }
+
+    //ARGB pixel at sensor coordinates
+    abstract int getSensorPixel(int x, int y);
+}
@@ -0,0 +1,95 @@
+package com.gravity.face.core.utils;
+
+import android.graphics.ImageFormat;
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+//YUV 4:2:0 planes read in place, converted with full range BT.601 like camera JPEG output
+public final class YuvFrame extends RotatedImageFrame {
+
+    private final ByteBuffer yBuffer;
+    private final ByteBuffer uBuffer;
+    private final ByteBuffer vBuffer;
+    private final int yOffset;
+    private final int uOffset;
+    private final int vOffset;
+    private final int yRowStride;
+    private final int yPixelStride;
+    private final int uvRowStride;
+    private final int uvPixelStride;
+
+    private YuvFrame(int width, int height, int rotation,
+                     ByteBuffer yBuffer, int yOffset, int yRowStride, int yPixelStride,
+                     ByteBuffer uBuffer, int uOffset, ByteBuffer vBuffer, int vOffset, int uvRowStride, int uvPixelStride) {
+        super(width, height, rotation);
+        this.yBuffer = Objects.requireNonNull(yBuffer);
+        this.uBuffer = Objects.requireNonNull(uBuffer);
+        this.vBuffer = Objects.requireNonNull(vBuffer);
+        this.yOffset = yOffset;
+        this.uOffset = uOffset;
+        this.vOffset = vOffset;
+        this.yRowStride = yRowStride;
+        this.yPixelStride = yPixelStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+    }
+
+    //Planes of a YUV_420_888 image, buffers are read from their current position
+    public static YuvFrame fromYuv420888(int width, int height, int rotation,
+                                         ByteBuffer yBuffer, int yRowStride, int yPixelStride,
+                                         ByteBuffer uBuffer, ByteBuffer vBuffer, int uvRowStride, int uvPixelStride) {
+        return new YuvFrame(width, height, rotation,
+                yBuffer, yBuffer.position(), yRowStride, yPixelStride,
+                uBuffer, uBuffer.position(), vBuffer, vBuffer.position(), uvRowStride, uvPixelStride);
+    }
+
+    public static YuvFrame fromImage(Image image, int rotation) {
+        if (image.getFormat() != ImageFormat.YUV_420_888)
+            throw new IllegalArgumentException("Only YUV_420_888 images are supported, format: " + image.getFormat());
+        Image.Plane[] planes = image.getPlanes();
+        return fromYuv420888(image.getWidth(), image.getHeight(), rotation,
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride());
+    }
+
+    //Full Y plane followed by interleaved V and U at half resolution, read from the buffer position
+    public static YuvFrame fromNv21(ByteBuffer data, int width, int height, int rotation) {
+        int offset = data.position();
+        int chromaOffset = offset + width * height;
+        return new YuvFrame(width, height, rotation,
+                data, offset, width, 1,
+                data, chromaOffset + 1, data, chromaOffset, width, 2);
+    }
+
+    public static YuvFrame fromNv21(byte[] data, int width, int height, int rotation) {
+        return fromNv21(ByteBuffer.wrap(data), width, height, rotation);
+    }
+
+    //Interleaved chroma planes share their memory, planar ones do not
+    @Override
+    public long getByteCount() {
+        long chromaRows = (this.getSensorHeight() + 1) / 2;
+        return (long) this.yRowStride * this.getSensorHeight() +
+                this.uvRowStride * chromaRows * (this.uvPixelStride == 1 ? 2 : 1);
+    }
+
+    @Override
+    int getSensorPixel(int x, int y) {
+        int luma = this.yBuffer.get(this.yOffset + y * this.yRowStride + x * this.yPixelStride) & 0xFF;
+        int chromaIndex = (y >> 1) * this.uvRowStride + (x >> 1) * this.uvPixelStride;
+        int u = (this.uBuffer.get(this.uOffset + chromaIndex) & 0xFF) - 128;
+        int v = (this.vBuffer.get(this.vOffset + chromaIndex) & 0xFF) - 128;
+
+        //Coefficients in 16 bit fixed point
+        int r = clamp(luma + ((91881 * v) >> 16));
+        int g = clamp(luma - ((22554 * u + 46802 * v) >> 16));
+        int b = clamp(luma + ((116130 * u) >> 16));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+}
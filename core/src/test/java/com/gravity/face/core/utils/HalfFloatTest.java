@@ -0,0 +1,79 @@
+package com.gravity.face.core.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HalfFloatTest {
+
+    private static final short POSITIVE_INFINITY = 0x7C00;
+    private static final short MAX_VALUE = 0x7BFF;
+
+    @Test
+    public void everyHalfRoundTrips() {
+        for (int bits = 0; bits <= 0xFFFF; bits++) {
+            short half = (short) bits;
+            float value = HalfFloat.toFloat(half);
+            if (Float.isNaN(value)) {
+                assertTrue("NaN half: " + Integer.toHexString(bits), isNaN(HalfFloat.toHalf(value)));
+                continue;
+            }
+            assertEquals("Half: " + Integer.toHexString(bits), half, HalfFloat.toHalf(value));
+        }
+    }
+
+    @Test
+    public void knownValues() {
+        assertEquals(1.0f, HalfFloat.toFloat((short) 0x3C00), 0.0f);
+        assertEquals(-2.0f, HalfFloat.toFloat((short) 0xC000), 0.0f);
+        assertEquals(65504.0f, HalfFloat.toFloat(MAX_VALUE), 0.0f);
+        assertEquals(0x1p-24f, HalfFloat.toFloat((short) 0x0001), 0.0f);
+        assertEquals(0x1p-14f, HalfFloat.toFloat((short) 0x0400), 0.0f);
+        assertEquals((short) 0x8000, HalfFloat.toHalf(-0.0f));
+        assertEquals(POSITIVE_INFINITY, HalfFloat.toHalf(Float.POSITIVE_INFINITY));
+        assertEquals((short) 0xFC00, HalfFloat.toHalf(Float.NEGATIVE_INFINITY));
+        assertTrue(isNaN(HalfFloat.toHalf(Float.NaN)));
+    }
+
+    //Halves have 11 significant bits, so the midpoint of two neighbours is exact in float
+    @Test
+    public void midpointsRoundToEven() {
+        for (int bits = 0; bits < MAX_VALUE; bits++) {
+            float low = HalfFloat.toFloat((short) bits);
+            float high = HalfFloat.toFloat((short) (bits + 1));
+            float midpoint = (low + high) / 2;
+            short even = (short) ((bits & 1) == 0 ? bits : bits + 1);
+
+            assertEquals("Midpoint above: " + Integer.toHexString(bits), even, HalfFloat.toHalf(midpoint));
+            assertEquals(negate(even), HalfFloat.toHalf(-midpoint));
+            assertEquals((short) bits, HalfFloat.toHalf(Math.nextDown(midpoint)));
+            assertEquals((short) (bits + 1), HalfFloat.toHalf(Math.nextUp(midpoint)));
+        }
+    }
+
+    @Test
+    public void overflowRoundsToInfinity() {
+        //Halfway between the largest half and the next power of two, the odd largest half loses the tie
+        assertEquals(POSITIVE_INFINITY, HalfFloat.toHalf(65520.0f));
+        assertEquals(MAX_VALUE, HalfFloat.toHalf(Math.nextDown(65520.0f)));
+        assertEquals(POSITIVE_INFINITY, HalfFloat.toHalf(Float.MAX_VALUE));
+    }
+
+    @Test
+    public void underflowRoundsToZero() {
+        //Halfway between zero and the smallest subnormal half, zero is even
+        assertEquals((short) 0, HalfFloat.toHalf(0x1p-25f));
+        assertEquals((short) 0x0001, HalfFloat.toHalf(Math.nextUp(0x1p-25f)));
+        assertEquals((short) 0, HalfFloat.toHalf(Float.MIN_VALUE));
+        assertEquals((short) 0x8000, HalfFloat.toHalf(-Float.MIN_VALUE));
+    }
+
+    private static boolean isNaN(short half) {
+        return (half & 0x7C00) == 0x7C00 && (half & 0x3FF) != 0;
+    }
+
+    private static short negate(short half) {
+        return (short) (half ^ 0x8000);
+    }
+}
@@ -0,0 +1,205 @@
+package com.gravity.face.core.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//Every element added is either taken or dropped exactly once, also when close races the producers and consumers
+public class LimitedSizeQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 3;
+    private static final int ELEMENTS_PER_PRODUCER = 20000;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Test
+    public void addDropsTheOldest() {
+        List<Integer> dropped = new ArrayList<>();
+        LimitedSizeQueue<Integer> queue = new LimitedSizeQueue<>(2, dropped::add);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(queue.add(i));
+        }
+
+        assertEquals(2, queue.size());
+        assertEquals(5, queue.getAddedCount());
+        assertEquals(3, queue.getDroppedCount());
+        assertEquals(Arrays.asList(0, 1, 2), dropped);
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertEquals(Integer.valueOf(4), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void closeDropsPendingAndRejectsNew() throws InterruptedException {
+        List<Integer> dropped = new ArrayList<>();
+        LimitedSizeQueue<Integer> queue = new LimitedSizeQueue<>(4, dropped::add);
+        queue.add(1);
+        queue.add(2);
+        queue.close();
+
+        assertEquals(Arrays.asList(1, 2), dropped);
+        assertFalse(queue.add(3));
+        assertFalse(queue.put(3));
+        assertNull(queue.take());
+        assertEquals(2, queue.getAddedCount());
+    }
+
+    @Test
+    public void closeWakesBlockedConsumer() throws InterruptedException {
+        LimitedSizeQueue<Integer> queue = new LimitedSizeQueue<>(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            try {
+                if (queue.take() == null)
+                    done.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        queue.close();
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    //Concurrent producers must not leave more elements than the capacity, a latest only queue holds a single frame
+    @Test
+    public void concurrentAddsStayWithinCapacity() throws InterruptedException {
+        for (int round = 0; round < 500; round++) {
+            LimitedSizeQueue<Integer> queue = new LimitedSizeQueue<>(1);
+            AtomicInteger maxSize = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                producers.add(new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 100; i++) {
+                            queue.add(i);
+                            maxSize.accumulateAndGet(queue.size(), Math::max);
+                        }
+                    } catch (InterruptedException ignored) {
+                    }
+                }));
+            }
+            for (Thread thread : producers) {
+                thread.start();
+            }
+            start.countDown();
+            join(producers);
+
+            assertTrue("Size: " + maxSize.get(), maxSize.get() <= queue.getCapacity());
+            int remaining = 0;
+            while (queue.poll() != null) {
+                remaining++;
+            }
+            assertEquals(1, remaining);
+        }
+    }
+
+    @Test
+    public void addAndTakeLoseNothing() throws InterruptedException {
+        run(false, false);
+    }
+
+    @Test
+    public void putAndTakeLoseNothing() throws InterruptedException {
+        run(true, false);
+    }
+
+    @Test
+    public void closeRacingProducersAndConsumersLosesNothing() throws InterruptedException {
+        run(false, true);
+        run(true, true);
+    }
+
+    private static void run(boolean blocking, boolean closeEarly) throws InterruptedException {
+        ConcurrentLinkedQueue<Integer> dropped = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Integer> taken = new ConcurrentLinkedQueue<>();
+        LimitedSizeQueue<Integer> queue = new LimitedSizeQueue<>(8, dropped::add);
+        AtomicLong added = new AtomicLong();
+        AtomicInteger maxSize = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int first = p * ELEMENTS_PER_PRODUCER;
+            producers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = first; i < first + ELEMENTS_PER_PRODUCER; i++) {
+                        //Alternate add and put on the blocking run so both paths race each other
+                        boolean accepted = blocking && i % 2 == 0 ? queue.put(i) : queue.add(i);
+                        if (accepted)
+                            added.incrementAndGet();
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }));
+        }
+        List<Thread> consumers = new ArrayList<>();
+        for (int c = 0; c < CONSUMERS; c++) {
+            consumers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    Integer e;
+                    while ((e = queue.take()) != null) {
+                        taken.add(e);
+                        maxSize.accumulateAndGet(queue.size(), Math::max);
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }));
+        }
+        for (Thread thread : producers) {
+            thread.start();
+        }
+        for (Thread thread : consumers) {
+            thread.start();
+        }
+
+        start.countDown();
+        if (closeEarly) {
+            Thread.sleep(5);
+            queue.close();
+        }
+        join(producers);
+        queue.close();
+        join(consumers);
+
+        assertEquals(added.get(), queue.getAddedCount());
+        assertEquals(dropped.size(), queue.getDroppedCount());
+        assertEquals(added.get(), taken.size() + dropped.size());
+        assertEquals(0, queue.size());
+        assertTrue("Size: " + maxSize.get(), maxSize.get() <= queue.getCapacity());
+
+        boolean[] seen = new boolean[PRODUCERS * ELEMENTS_PER_PRODUCER];
+        for (Integer e : taken) {
+            assertFalse("Duplicated element: " + e, seen[e]);
+            seen[e] = true;
+        }
+        for (Integer e : dropped) {
+            assertFalse("Duplicated element: " + e, seen[e]);
+            seen[e] = true;
+        }
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertFalse("Thread did not finish", thread.isAlive());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.gravity.face.core.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryBudgetTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+    //Long enough for a blocked acquire to have returned if it was going to
+    private static final long SETTLE_MILLIS = 100;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyBudget() {
+        new MemoryBudget(0);
+    }
+
+    @Test
+    public void tryAcquireStaysWithinBudget() {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        assertTrue(budget.tryAcquire(60));
+        assertTrue(budget.tryAcquire(40));
+        assertFalse(budget.tryAcquire(1));
+        assertEquals(100, budget.getUsedBytes());
+
+        budget.release(40);
+        assertTrue(budget.tryAcquire(30));
+        assertEquals(90, budget.getUsedBytes());
+    }
+
+    @Test
+    public void frameLargerThanBudgetFitsAlone() {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        assertTrue(budget.tryAcquire(500));
+        assertFalse(budget.tryAcquire(1));
+        budget.release(500);
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    public void unboundedBudgetNeverBlocks() {
+        MemoryBudget budget = new MemoryBudget(-1);
+
+        assertTrue(budget.tryAcquire(Long.MAX_VALUE / 2));
+        assertTrue(budget.tryAcquire(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void forceAcquireGoesPastBudget() {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.forceAcquire(80);
+        budget.forceAcquire(80);
+
+        assertEquals(160, budget.getUsedBytes());
+        assertFalse(budget.tryAcquire(1));
+        budget.release(1000);
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    public void acquireBlocksUntilRelease() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        assertTrue(budget.tryAcquire(80));
+        AtomicReference<Boolean> acquired = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread thread = start(budget, 50, acquired, done);
+
+        assertFalse(done.await(SETTLE_MILLIS, TimeUnit.MILLISECONDS));
+        //Still short of the budget
+        budget.release(20);
+        assertFalse(done.await(SETTLE_MILLIS, TimeUnit.MILLISECONDS));
+        budget.release(20);
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(acquired.get());
+        assertEquals(90, budget.getUsedBytes());
+        thread.join();
+    }
+
+    @Test
+    public void closeWakesBlockedAcquire() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        assertTrue(budget.tryAcquire(100));
+        AtomicReference<Boolean> acquired = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread thread = start(budget, 10, acquired, done);
+
+        assertFalse(done.await(SETTLE_MILLIS, TimeUnit.MILLISECONDS));
+        budget.close();
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(acquired.get());
+        assertEquals(100, budget.getUsedBytes());
+        assertFalse(budget.acquire(1));
+        thread.join();
+    }
+
+    @Test
+    public void interruptStopsBlockedAcquire() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        assertTrue(budget.tryAcquire(100));
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                budget.acquire(10);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            done.countDown();
+        });
+        thread.start();
+
+        thread.interrupt();
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        assertEquals(100, budget.getUsedBytes());
+    }
+
+    private static Thread start(MemoryBudget budget, long bytes, AtomicReference<Boolean> acquired, CountDownLatch done) {
+        Thread thread = new Thread(() -> {
+            try {
+                acquired.set(budget.acquire(bytes));
+            } catch (InterruptedException ignored) {
+            }
+            done.countDown();
+        });
+        thread.start();
+        return thread;
+    }
+}
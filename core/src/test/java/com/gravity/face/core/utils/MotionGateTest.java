@@ -0,0 +1,123 @@
+package com.gravity.face.core.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MotionGateTest {
+
+    private static final float MAX_DIFFERENCE = 4.0f;
+    private static final int MAX_REUSED_FRAMES = 3;
+
+    private final MotionGate<String> gate = new MotionGate<>(MAX_DIFFERENCE, MAX_REUSED_FRAMES);
+
+    @Test
+    public void nothingIsReusedBeforeACommit() {
+        assertNull(this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 100))));
+        assertNull(this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 100))));
+
+        assertEquals(0, this.gate.getHitCount());
+        assertEquals(2, this.gate.getMissCount());
+    }
+
+    @Test
+    public void similarFrameReusesCommittedResult() {
+        this.process(new GrayFrame(64, 48, 100), "first");
+
+        assertSame("first", this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 102))));
+        assertEquals(1, this.gate.getHitCount());
+        assertEquals(1, this.gate.getMissCount());
+    }
+
+    @Test
+    public void changedFrameMisses() {
+        this.process(new GrayFrame(64, 48, 100), "first");
+
+        assertNull(this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 120))));
+        assertNull(this.gate.reuse(this.gate.sign(new GrayFrame(48, 64, 100))));
+        assertEquals(0, this.gate.getHitCount());
+    }
+
+    @Test
+    public void reusedFramesAreLimited() {
+        this.process(new GrayFrame(64, 48, 100), "first");
+        for (int i = 0; i < MAX_REUSED_FRAMES; i++)
+            assertSame("first", this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 100))));
+
+        MotionGate.Signature signature = this.gate.sign(new GrayFrame(64, 48, 100));
+        assertNull(this.gate.reuse(signature));
+        this.gate.commit(signature, "refreshed");
+        assertSame("refreshed", this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 100))));
+    }
+
+    //A frame only matches the reference once the frame before it committed its own result
+    @Test
+    public void framesInFlightDoNotReuseResultsOfOtherFrames() {
+        this.process(new GrayFrame(64, 48, 0), "dark");
+        MotionGate.Signature first = this.gate.sign(new GrayFrame(64, 48, 200));
+        assertNull(this.gate.reuse(first));
+        MotionGate.Signature second = this.gate.sign(new GrayFrame(64, 48, 200));
+        assertNull(this.gate.reuse(second));
+
+        this.gate.commit(first, "bright");
+        this.gate.discard(second);
+        assertSame("bright", this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 200))));
+    }
+
+    @Test
+    public void discardKeepsReference() {
+        this.process(new GrayFrame(64, 48, 100), "first");
+        MotionGate.Signature failed = this.gate.sign(new GrayFrame(64, 48, 200));
+        assertNull(this.gate.reuse(failed));
+        this.gate.discard(failed);
+
+        assertSame("first", this.gate.reuse(this.gate.sign(new GrayFrame(64, 48, 100))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveDifference() {
+        new MotionGate<String>(0, MAX_REUSED_FRAMES);
+    }
+
+    private void process(ImageFrame frame, String result) {
+        MotionGate.Signature signature = this.gate.sign(frame);
+        assertNull(this.gate.reuse(signature));
+        this.gate.commit(signature, result);
+    }
+
+    private static final class GrayFrame implements ImageFrame {
+        private final int width;
+        private final int height;
+        private final int pixel;
+
+        private GrayFrame(int width, int height, int luminance) {
+            this.width = width;
+            this.height = height;
+            this.pixel = 0xFF000000 | (luminance << 16) | (luminance << 8) | luminance;
+        }
+
+        @Override
+        public int getWidth() {
+            return this.width;
+        }
+
+        @Override
+        public int getHeight() {
+            return this.height;
+        }
+
+        @Override
+        public void getPixels(int row, int[] columns, int count, int[] pixels, int[] rowBuffer) {
+            Arrays.fill(pixels, 0, count, this.pixel);
+        }
+
+        @Override
+        public long getByteCount() {
+            return (long) this.width * this.height * 4;
+        }
+    }
+}
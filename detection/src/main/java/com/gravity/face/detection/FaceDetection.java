@@ -2,37 +2,57 @@ package com.gravity.face.detection;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.RectF;
 import android.util.Size;
 
+import com.gravity.face.core.FrameReleaseListener;
+import com.gravity.face.core.RecyclableResult;
+import com.gravity.face.core.ResultPool;
 import com.gravity.face.core.SolutionBase;
+import com.gravity.face.core.utils.BitmapFrame;
+import com.gravity.face.core.utils.CroppedFrame;
+import com.gravity.face.core.utils.FrameThumbnail;
+import com.gravity.face.core.utils.ImageFrame;
 import com.gravity.face.detection.utils.ImageProcessorUtil;
-import com.gravity.face.detection.models.Anchor;
 import com.gravity.face.detection.models.AnchorOptions;
 import com.gravity.face.detection.models.Face;
 import com.gravity.face.detection.models.FaceDetectionOptions;
 import com.gravity.face.detection.models.FaceDetectionResult;
 import com.gravity.face.detection.models.TensorToFacesOptions;
-import com.gravity.face.detection.utils.AnchorGenerator;
+import com.gravity.face.detection.utils.AnchorCache;
+import com.gravity.face.detection.utils.DetectionWindow;
+import com.gravity.face.detection.utils.FacePredictor;
 import com.gravity.face.core.utils.LimitedSizeQueue;
+import com.gravity.face.core.utils.MemoryBudget;
+import com.gravity.face.core.utils.MotionGate;
 import com.gravity.face.detection.utils.TensorToFaces;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
-import org.tensorflow.lite.DataType;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public final class FaceDetection extends SolutionBase<Bitmap, FaceDetectionResult> implements Runnable {
+public final class FaceDetection extends SolutionBase<ImageFrame, FaceDetectionResult> implements Runnable {
+
+    //Supplies the faces of frames that do not need the detector, called on the thread that processes the frame
+    public interface FaceTracker {
+        //Adds the tracked faces to the result and returns true, or returns false to run the detector
+        boolean track(ImageFrame imageFrame, FaceDetectionResult result);
+    }
 
     //Model name in assets folder
     private static final String MODEL_PATH = "face_detection_short_range.tflite";
-    //Queue Size
-    private static final int QUEUE_SIZE = 10;
     //Model input image characteristics
     private static final int IMAGE_WIDTH = 128;
     private static final int IMAGE_HEIGHT = 128;
@@ -40,67 +60,495 @@ public final class FaceDetection extends SolutionBase<Bitmap, FaceDetectionResul
     private static final float IMAGE_STD = 127.5f;
     //FaceDetection Options
     private final FaceDetectionOptions options;
-    //Image Processor
-    private final ImageProcessorUtil imageProcessorUtil;
-    //Model output
-    private final float[][][] regressionOutput;
-    private final float[][][] classificationOutput;
-    //Encoding objects
-    private final List<Anchor> anchors;
+    //Letterbox resamplers, one per interpreter
+    private final ImageProcessorUtil[] imageProcessorUtils;
+    //Model output shapes, every interpreter allocates its own buffers
+    private final int[] regressionOutputShape;
+    private final int[] classificationOutputShape;
+    //Encoding objects, one decoder per interpreter
+    private final float[] anchors;
     private final TensorToFacesOptions detectionsOption;
-    private final TensorToFaces tensorToFaces;
-    private final LimitedSizeQueue<Bitmap> queue;
+    private final TensorToFaces[] tensorToFaces;
+    private final LimitedSizeQueue<PendingFrame> queue;
+    private final AtomicLong staleFrameCount;
+    private final AtomicLong nextFrameId;
+    //Input buffers and the input arrays wrapping them, one per interpreter
+    private final ByteBuffer[] inputBuffers;
+    private final Object[][] inputs;
+    //Null unless results are pooled
+    private final ResultPool<FaceDetectionResult> resultPool;
+    //Frames between detect or process and their release
+    private final MemoryBudget memoryBudget;
+    private final AtomicLong overBudgetFrameCount;
+    private final RecyclableResult.ReleaseListener frameReleaser;
+    private volatile FrameReleaseListener frameReleaseListener;
+    //Tracking
+    private volatile FaceTracker faceTracker;
+    private final AtomicLong trackedFrameCount;
+    //Null while every frame is detected
+    private final FacePredictor facePredictor;
+    private final AtomicLong predictedFrameCount;
+    //Null while every frame is processed, keeps a copy of the faces and the id of the last processed frame
+    private final MotionGate<FaceDetectionResult> motionGate;
+    //Null while the detector searches the whole frame
+    private final DetectionWindow detectionWindow;
+    private final AtomicLong windowedFrameCount;
 
-    public FaceDetection(@NonNull Context context,@NonNull FaceDetectionOptions options) {
-        super(context);
+    public FaceDetection(@NonNull Context context, @NonNull FaceDetectionOptions options) {
+        this(context, options, command -> new Thread(command, "FaceDetection").start());
+    }
 
-        this.options = Objects.requireNonNull(options);
-        this.imageProcessorUtil = new ImageProcessorUtil(IMAGE_MEAN, IMAGE_STD, IMAGE_WIDTH, IMAGE_HEIGHT);
+    public FaceDetection(@NonNull Context context, @NonNull FaceDetectionOptions options, @NonNull Executor executor) {
+        super(context, Objects.requireNonNull(options).getNumInterpreters(), options.isShareInterpreters());
 
-        this.anchors = AnchorGenerator.generate(AnchorOptions.withDefaultValues());
-        this.detectionsOption = TensorToFacesOptions.withDefaultValues(this.options.getMinConfidence(), this.options.getMaxNumberOfFaces());
-        this.tensorToFaces = new TensorToFaces();
+        this.options = options;
 
-        int[] regressionOutputShape = super.getOutputTensorShape(0);
-        this.regressionOutput = new float[regressionOutputShape[0]][regressionOutputShape[1]][regressionOutputShape[2]];
+        this.anchors = AnchorCache.get(AnchorOptions.withDefaultValues());
+        this.detectionsOption = TensorToFacesOptions.withDefaultValues(this.options);
+        this.tensorToFaces = new TensorToFaces[super.getNumInterpreters()];
+        this.imageProcessorUtils = new ImageProcessorUtil[super.getNumInterpreters()];
+        for (int i = 0; i < this.tensorToFaces.length; i++) {
+            this.tensorToFaces[i] = new TensorToFaces();
+            this.imageProcessorUtils[i] = new ImageProcessorUtil(IMAGE_MEAN, IMAGE_STD, IMAGE_WIDTH, IMAGE_HEIGHT);
+        }
 
-        int[] classificationOutputShape = getOutputTensorShape(1);
-        this.classificationOutput = new float[classificationOutputShape[0]][classificationOutputShape[1]][classificationOutputShape[2]];
+        this.regressionOutputShape = super.getOutputTensorShape(0);
+        this.classificationOutputShape = super.getOutputTensorShape(1);
 
-        this.queue = new LimitedSizeQueue<>(QUEUE_SIZE);
-        new Thread(this).start();
+        int queueSize = this.options.getBackpressurePolicy() == FaceDetectionOptions.BackpressurePolicy.LATEST_ONLY ?
+                1 : this.options.getQueueDepth();
+        this.queue = new LimitedSizeQueue<>(queueSize, frame -> this.releaseFrame(frame.imageFrame));
+        this.staleFrameCount = new AtomicLong();
+        this.nextFrameId = new AtomicLong();
+        this.inputBuffers = new ByteBuffer[super.getNumInterpreters()];
+        this.inputs = new Object[super.getNumInterpreters()][];
+        //Retains enough results for every frame in flight and a few held by the listener
+        this.resultPool = this.options.isPooledResults() ?
+                new ResultPool<>(queueSize + super.getNumInterpreters() + 2, FaceDetectionResult::new,
+                        this.options.isResultLeakDetection() ? super::sendError : null) : null;
+        this.memoryBudget = new MemoryBudget(this.options.getMaxRetainedBytes());
+        this.overBudgetFrameCount = new AtomicLong();
+        this.frameReleaser = result -> this.releaseFrame(((FaceDetectionResult) result).getInputFrame());
+        this.trackedFrameCount = new AtomicLong();
+        this.facePredictor = this.options.getMaxKeyframeInterval() > 1 ?
+                new FacePredictor(this.options.getMaxKeyframeInterval(), this.options.getMaxPredictionError()) : null;
+        this.predictedFrameCount = new AtomicLong();
+        this.motionGate = this.options.getMaxFrameDifference() != -1 ?
+                new MotionGate<>(this.options.getMaxFrameDifference(), this.options.getMaxReusedFrames()) : null;
+        this.detectionWindow = this.options.isRoiDetection() ?
+                new DetectionWindow(this.options.getRoiScale(), this.options.getFullFrameInterval()) : null;
+        this.windowedFrameCount = new AtomicLong();
+        Objects.requireNonNull(executor).execute(this);
     }
 
     public void detect(@NonNull Bitmap bitmap) {
         try {
-            this.queue.add(Objects.requireNonNull(bitmap));
+            this.detect(new BitmapFrame(bitmap));
         } catch (NullPointerException e) {
             super.sendError(e);
         }
     }
 
+    //Frame buffers have to stay untouched until the frame release listener is called
+    public void detect(@NonNull ImageFrame imageFrame) {
+        if (imageFrame == null) {
+            super.sendError(new NullPointerException());
+            return;
+        }
+        boolean reserved = false;
+        try {
+            reserved = this.reserve(imageFrame);
+            if (!reserved) {
+                this.overBudgetFrameCount.incrementAndGet();
+                this.notifyFrameReleased(imageFrame);
+                return;
+            }
+            PendingFrame frame = new PendingFrame(imageFrame, this.nextFrameId.getAndIncrement(), System.nanoTime());
+            boolean queued = this.options.getBackpressurePolicy() == FaceDetectionOptions.BackpressurePolicy.BLOCK ?
+                    this.queue.put(frame) : this.queue.add(frame);
+            if (!queued)
+                this.releaseFrame(imageFrame);
+        } catch (InterruptedException e) {
+            if (reserved)
+                this.releaseFrame(imageFrame);
+            else
+                this.notifyFrameReleased(imageFrame);
+            Thread.currentThread().interrupt();
+            super.sendError(e);
+        }
+    }
+
+    //Runs detection on the calling thread, safe to call concurrently up to the number of interpreters.
+    //Returns null if inference failed, the error is reported to the error listener.
+    @Nullable
+    public FaceDetectionResult process(@NonNull Bitmap bitmap) {
+        try {
+            return this.process(new BitmapFrame(bitmap));
+        } catch (NullPointerException e) {
+            super.sendError(e);
+            return null;
+        }
+    }
+
+    //Camera frames are converted straight into the model input, faces are relative to the rotated frame.
+    //The frame counts against the memory budget without waiting for it, the caller holds it anyway.
+    @Nullable
+    public FaceDetectionResult process(@NonNull ImageFrame imageFrame) {
+        if (imageFrame == null) {
+            super.sendError(new NullPointerException());
+            return null;
+        }
+        this.memoryBudget.forceAcquire(imageFrame.getByteCount());
+        return this.process(imageFrame, this.nextFrameId.getAndIncrement());
+    }
+
+    //Runs detection of the frames in batches of up to maxBatchSize on the calling thread.
+    //Results follow the order of the bitmaps, returns null if inference failed, the error is reported to the error listener.
+    @Nullable
+    public List<FaceDetectionResult> detectBatch(@NonNull List<Bitmap> bitmaps) {
+        List<FaceDetectionResult> results = new ArrayList<>(bitmaps.size());
+        for (int start = 0; start < bitmaps.size(); start += this.options.getMaxBatchSize()) {
+            List<ImageFrame> batch = new ArrayList<>();
+            for (Bitmap bitmap : bitmaps.subList(start, Math.min(bitmaps.size(), start + this.options.getMaxBatchSize()))) {
+                BitmapFrame frame = new BitmapFrame(bitmap);
+                this.memoryBudget.forceAcquire(frame.getByteCount());
+                batch.add(frame);
+            }
+            long firstFrameId = this.nextFrameId.getAndAdd(batch.size());
+
+            try (Invocation invocation = super.interpretBatch(batch)) {
+                if (invocation == null) {
+                    for (ImageFrame imageFrame : batch)
+                        this.releaseFrame(imageFrame);
+                    for (FaceDetectionResult result : results)
+                        result.release();
+                    return null;
+                }
+
+                FloatBuffer rawBoxes = invocation.getFloatOutput(0);
+                FloatBuffer rawScores = invocation.getFloatOutput(1);
+                int boxStride = rawBoxes.capacity() / invocation.getBatchSize();
+                int scoreStride = rawScores.capacity() / invocation.getBatchSize();
+                int i = 0;
+                try {
+                    for (; i < batch.size(); i++) {
+                        //Decoders read one frame from the buffer positions
+                        rawBoxes.position(i * boxStride);
+                        rawScores.position(i * scoreStride);
+                        results.add(this.decode(invocation.getSlot(), rawScores, rawBoxes, batch.get(i), null, firstFrameId + i));
+                    }
+                } catch (RuntimeException e) {
+                    //The failed frame was released by decode, the frames after it were never decoded
+                    for (int j = i + 1; j < batch.size(); j++)
+                        this.releaseFrame(batch.get(j));
+                    for (FaceDetectionResult result : results)
+                        result.release();
+                    super.sendError(e);
+                    return null;
+                }
+            }
+        }
+        return results;
+    }
+
+    //Frames dropped by the backpressure policy or to stay within the memory budget
+    public long getDroppedFrameCount() {
+        return this.queue.getDroppedCount() + this.overBudgetFrameCount.get();
+    }
+
+    //Bytes of frames pending, in inference or attached to results that were not released yet
+    public long getRetainedBytes() {
+        return this.memoryBudget.getUsedBytes();
+    }
+
+    //Called on the thread that drops, processes or releases the frame
+    public void setFrameReleaseListener(@Nullable FrameReleaseListener listener) {
+        this.frameReleaseListener = listener;
+    }
+
+    public long getStaleFrameCount() {
+        return this.staleFrameCount.get();
+    }
+
+    //Frames whose faces came from the tracker instead of the detector
+    public long getTrackedFrameCount() {
+        return this.trackedFrameCount.get();
+    }
+
+    //Frames whose faces were extrapolated from earlier detections
+    public long getPredictedFrameCount() {
+        return this.predictedFrameCount.get();
+    }
+
+    //Current number of frames per detector run, adapted to the prediction error
+    public int getKeyframeInterval() {
+        return this.facePredictor != null ? this.facePredictor.getKeyframeInterval() : 1;
+    }
+
+    //Frames that reused the result of the last processed frame
+    public long getMotionGateHitCount() {
+        return this.motionGate != null ? this.motionGate.getHitCount() : 0;
+    }
+
+    //Frames the motion gate found changed, or that had to be refreshed
+    public long getMotionGateMissCount() {
+        return this.motionGate != null ? this.motionGate.getMissCount() : 0;
+    }
+
+    //Frames detected in a window around the last faces instead of the whole frame
+    public long getWindowedFrameCount() {
+        return this.windowedFrameCount.get();
+    }
+
+    //Asked before every single frame inference, batches always run the detector
+    public void setFaceTracker(@Nullable FaceTracker faceTracker) {
+        this.faceTracker = faceTracker;
+    }
+
     @Override
     public void run() {
         while (!super.isClosed()) {
-            Bitmap bitmap = this.queue.poll();
-            if (bitmap != null) {
-                super.interpret(bitmap);
-                List<Face> faces = this.tensorToFaces.process(
-                        new Size(bitmap.getWidth(),
-                                bitmap.getHeight()),
-                        this.detectionsOption,
-                        this.classificationOutput,
-                        this.regressionOutput,
-                        this.anchors);
-                this.sendResult(new FaceDetectionResult(faces, bitmap));
-            } else {
+            PendingFrame frame;
+            try {
+                frame = this.queue.take();
+            } catch (InterruptedException e) {
+                this.close();
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (frame == null)
+                continue;
+            if (this.isStale(frame)) {
+                this.staleFrameCount.incrementAndGet();
+                this.releaseFrame(frame.imageFrame);
+                continue;
+            }
+
+            //Failed frames release themselves, the worker goes on with the next one
+            FaceDetectionResult result;
+            try {
+                result = this.process(frame.imageFrame, frame.id);
+            } catch (RuntimeException e) {
+                this.sendError(e);
+                continue;
+            }
+            if (result != null)
+                this.sendResult(result);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        this.queue.close();
+        this.memoryBudget.close();
+    }
+
+    @Nullable
+    private FaceDetectionResult process(ImageFrame imageFrame, long frameId) {
+        if (this.motionGate == null)
+            return this.infer(imageFrame, frameId);
+
+        MotionGate.Signature signature = this.motionGate.sign(imageFrame);
+        FaceDetectionResult lastResult = this.motionGate.reuse(signature);
+        if (lastResult != null)
+            return this.reuse(imageFrame, frameId, lastResult);
+        FaceDetectionResult result;
+        try {
+            result = this.infer(imageFrame, frameId);
+        } catch (RuntimeException e) {
+            this.motionGate.discard(signature);
+            throw e;
+        }
+        if (result == null) {
+            this.motionGate.discard(signature);
+            return null;
+        }
+        //The frame and its faces become the reference together, a frame matching it never gets older faces
+        List<Face> faces = new ArrayList<>(result.getFaces().size());
+        for (Face face : result.getFaces()) {
+            Face copy = new Face(face.getRelativeKeyPoints().size());
+            copy.set(face);
+            faces.add(copy);
+        }
+        this.motionGate.commit(signature, new FaceDetectionResult(faces, (ImageFrame) null, frameId));
+        return result;
+    }
+
+    //Faces of the last processed frame for a frame that barely changed
+    private FaceDetectionResult reuse(ImageFrame imageFrame, long frameId, FaceDetectionResult lastResult) {
+        List<Face> lastFaces = lastResult.getFaces();
+        FaceDetectionResult result = this.newResult(frameId);
+        for (int i = 0; i < lastFaces.size(); i++) {
+            Face face = result.obtainFace(i, lastFaces.get(i).getRelativeKeyPoints().size());
+            face.set(lastFaces.get(i));
+            result.getFaces().add(face);
+        }
+        result.setReused(true);
+        result.setSourceFrameId(lastResult.getFrameId());
+        this.attachFrame(result, imageFrame);
+        return result;
+    }
+
+    private FaceDetectionResult infer(ImageFrame imageFrame, long frameId) {
+        FaceDetectionResult tracked = this.track(imageFrame, frameId);
+        if (tracked != null)
+            return tracked;
+        FaceDetectionResult predicted = this.predict(imageFrame, frameId);
+        if (predicted != null)
+            return predicted;
+
+        RectF window = this.detectionWindow != null ? this.detectionWindow.getWindow(imageFrame.getWidth(), imageFrame.getHeight()) : null;
+        ImageFrame input = window == null ? imageFrame :
+                new CroppedFrame(imageFrame, (int) window.left, (int) window.top, (int) window.width(), (int) window.height());
+        try (Invocation invocation = super.interpret(input)) {
+            if (invocation == null) {
+                this.releaseFrame(imageFrame);
+                return null;
+            }
+
+            FaceDetectionResult result = this.decode(invocation.getSlot(), invocation.getFloatOutput(1), invocation.getFloatOutput(0), imageFrame, window, frameId);
+            if (this.detectionWindow != null) {
+                this.detectionWindow.update(result.getFaces(), window != null);
+                if (window != null)
+                    this.windowedFrameCount.incrementAndGet();
+            }
+            if (this.facePredictor != null)
+                this.facePredictor.measure(frameId, result.getFaces());
+            return result;
+        }
+    }
+
+    //Result between keyframes, null when the frame has to be detected
+    @Nullable
+    private FaceDetectionResult predict(ImageFrame imageFrame, long frameId) {
+        if (this.facePredictor == null)
+            return null;
+
+        FaceDetectionResult result = this.newResult(frameId);
+        if (!this.facePredictor.predict(frameId, result)) {
+            result.release();
+            return null;
+        }
+        result.setPredicted(true);
+        this.predictedFrameCount.incrementAndGet();
+        this.attachFrame(result, imageFrame);
+        return result;
+    }
+
+    //Result of the tracker, null when there is no tracker or the detector has to run
+    @Nullable
+    private FaceDetectionResult track(ImageFrame imageFrame, long frameId) {
+        FaceTracker faceTracker = this.faceTracker;
+        if (faceTracker == null)
+            return null;
+
+        FaceDetectionResult result = this.newResult(frameId);
+        boolean tracked;
+        try {
+            tracked = faceTracker.track(imageFrame, result);
+        } catch (RuntimeException e) {
+            result.release();
+            this.releaseFrame(imageFrame);
+            throw e;
+        }
+        if (!tracked) {
+            result.release();
+            return null;
+        }
+        this.trackedFrameCount.incrementAndGet();
+        this.attachFrame(result, imageFrame);
+        return result;
+    }
+
+    //Faces detected in a window are decoded relative to it and mapped back to the frame
+    private FaceDetectionResult decode(int slot, FloatBuffer rawScores, FloatBuffer rawBoxes, ImageFrame imageFrame, @Nullable RectF window, long frameId) {
+        FaceDetectionResult result = this.newResult(frameId);
+        try {
+            this.tensorToFaces[slot].process(
+                    window != null ?
+                            new Size((int) window.width(), (int) window.height()) :
+                            new Size(imageFrame.getWidth(), imageFrame.getHeight()),
+                    this.detectionsOption,
+                    rawScores,
+                    rawBoxes,
+                    this.anchors,
+                    result);
+            if (window != null)
+                DetectionWindow.toFrame(result.getFaces(), window, imageFrame.getWidth(), imageFrame.getHeight());
+        } catch (RuntimeException e) {
+            result.release();
+            this.releaseFrame(imageFrame);
+            throw e;
+        }
+        this.attachFrame(result, imageFrame);
+        return result;
+    }
+
+    private FaceDetectionResult newResult(long frameId) {
+        FaceDetectionResult result = this.resultPool != null ? this.resultPool.acquire() : new FaceDetectionResult();
+        result.setFrameId(frameId);
+        return result;
+    }
+
+    //Full frames are released with their result, otherwise the frame is released as soon as the result is decoded
+    private void attachFrame(FaceDetectionResult result, ImageFrame imageFrame) {
+        switch (this.options.getInputBitmapMode()) {
+            case FULL:
+                result.setInputFrame(imageFrame);
+                result.setReleaseListener(this.frameReleaser);
+                return;
+            case THUMBNAIL:
+                result.setReleaseListener(null);
                 try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    super.close();
+                    result.setInputFrame(new BitmapFrame(FrameThumbnail.create(imageFrame, this.options.getThumbnailSize())));
+                } catch (RuntimeException e) {
+                    //Callers only release what they still own, the result and the frame are released here
+                    result.release();
+                    this.releaseFrame(imageFrame);
+                    throw e;
                 }
-            }
+                break;
+            default:
+                result.setInputFrame(null);
+                break;
         }
+        result.setReleaseListener(null);
+        this.releaseFrame(imageFrame);
+    }
+
+    //Makes room in the memory budget, dropping the oldest pending frames unless the policy blocks
+    private boolean reserve(ImageFrame imageFrame) throws InterruptedException {
+        long bytes = imageFrame.getByteCount();
+        if (this.options.getBackpressurePolicy() == FaceDetectionOptions.BackpressurePolicy.BLOCK)
+            return this.memoryBudget.acquire(bytes);
+
+        while (!this.memoryBudget.tryAcquire(bytes)) {
+            PendingFrame oldest = this.queue.poll();
+            if (oldest == null)
+                return false;
+            this.overBudgetFrameCount.incrementAndGet();
+            this.releaseFrame(oldest.imageFrame);
+        }
+        return true;
+    }
+
+    private void releaseFrame(@Nullable ImageFrame imageFrame) {
+        if (imageFrame == null)
+            return;
+        this.memoryBudget.release(imageFrame.getByteCount());
+        this.notifyFrameReleased(imageFrame);
+    }
+
+    private void notifyFrameReleased(ImageFrame imageFrame) {
+        FrameReleaseListener listener = this.frameReleaseListener;
+        if (listener != null)
+            listener.onFrameReleased(imageFrame);
+    }
+
+    private boolean isStale(PendingFrame frame) {
+        long maxFrameAgeMillis = this.options.getMaxFrameAgeMillis();
+        return maxFrameAgeMillis != -1 && System.nanoTime() - frame.timestamp > TimeUnit.MILLISECONDS.toNanos(maxFrameAgeMillis);
     }
 
     @Override
@@ -118,22 +566,60 @@ public final class FaceDetection extends SolutionBase<Bitmap, FaceDetectionResul
     }
 
     @Override
-    protected Object[] getInputs(Bitmap input) throws Exception {
-        TensorImage image = new TensorImage(DataType.FLOAT32);
-        image.load(input);
+    protected Object[] getInputs(ImageFrame input, int slot) throws Exception {
+        ImageProcessorUtil imageProcessorUtil = this.imageProcessorUtils[slot];
+        ByteBuffer buffer = this.getInputBuffer(slot, imageProcessorUtil.getOutputSize());
+        imageProcessorUtil.process(input, buffer);
+        buffer.rewind();
+        return this.inputs[slot];
+    }
 
-        ImageProcessor imageProcessor = this.imageProcessorUtil.getImageProcessor(input.getWidth(), input.getHeight());
+    @Override
+    protected Object[] getBatchInputs(List<ImageFrame> inputs, int batchSize, int slot) throws Exception {
+        ImageProcessorUtil imageProcessorUtil = this.imageProcessorUtils[slot];
+        ByteBuffer buffer = this.getInputBuffer(slot, imageProcessorUtil.getOutputSize() * batchSize);
+        for (int i = 0; i < inputs.size(); i++)
+            imageProcessorUtil.process(inputs.get(i), buffer);
+        buffer.rewind();
+        return this.inputs[slot];
+    }
 
-        image = imageProcessor.process(image);
-        return new Object[]{image.getBuffer()};
+    @Override
+    protected int getMaxBatchSize() {
+        return this.options.getMaxBatchSize();
     }
 
     @Override
-    protected Map<Integer, Object> getOutputs() throws Exception {
+    protected Map<Integer, Object> createOutputs(int batchSize) throws Exception {
         Map<Integer, Object> outputMap = new HashMap<>();
-        outputMap.put(0, this.regressionOutput);
-        outputMap.put(1, this.classificationOutput);
+        outputMap.put(0, allocateFloatOutput(this.regressionOutputShape, batchSize));
+        outputMap.put(1, allocateFloatOutput(this.classificationOutputShape, batchSize));
         return outputMap;
     }
 
+    //Reused per interpreter, the slot is owned by the calling thread until the invocation is closed
+    private ByteBuffer getInputBuffer(int slot, int size) {
+        ByteBuffer buffer = this.inputBuffers[slot];
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+            this.inputBuffers[slot] = buffer;
+            this.inputs[slot] = new Object[]{buffer};
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    private static final class PendingFrame {
+        private final ImageFrame imageFrame;
+        private final long id;
+        //Enqueue time in System.nanoTime base
+        private final long timestamp;
+
+        private PendingFrame(ImageFrame imageFrame, long id, long timestamp) {
+            this.imageFrame = imageFrame;
+            this.id = id;
+            this.timestamp = timestamp;
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.gravity.face.detection.models;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public final class AnchorOptions {
     private final int numLayers;
@@ -105,6 +106,36 @@ public final class AnchorOptions {
         return reduceBoxesInLowestLayer;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        AnchorOptions that = (AnchorOptions) o;
+        return numLayers == that.numLayers &&
+                Double.compare(that.minScale, minScale) == 0 &&
+                Double.compare(that.maxScale, maxScale) == 0 &&
+                inputSizeHeight == that.inputSizeHeight &&
+                inputSizeWidth == that.inputSizeWidth &&
+                Double.compare(that.anchorOffsetX, anchorOffsetX) == 0 &&
+                Double.compare(that.anchorOffsetY, anchorOffsetY) == 0 &&
+                Double.compare(that.interpolatedScaleAspectRatio, interpolatedScaleAspectRatio) == 0 &&
+                fixedAnchorSize == that.fixedAnchorSize &&
+                reduceBoxesInLowestLayer == that.reduceBoxesInLowestLayer &&
+                Objects.equals(featureMapWidth, that.featureMapWidth) &&
+                Objects.equals(featureMapHeight, that.featureMapHeight) &&
+                Objects.equals(strides, that.strides) &&
+                Objects.equals(aspectRatios, that.aspectRatios);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(numLayers, minScale, maxScale, inputSizeHeight, inputSizeWidth, anchorOffsetX, anchorOffsetY,
+                interpolatedScaleAspectRatio, featureMapWidth, featureMapHeight, strides, aspectRatios, fixedAnchorSize,
+                reduceBoxesInLowestLayer);
+    }
+
     public static AnchorOptions withDefaultValues() {
         List<Integer> strides = new ArrayList<>(4);
         strides.add(8);
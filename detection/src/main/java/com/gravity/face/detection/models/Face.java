@@ -3,6 +3,7 @@ package com.gravity.face.detection.models;
 import android.graphics.PointF;
 import android.graphics.RectF;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public final class Face {
@@ -22,7 +23,7 @@ public final class Face {
         }
     }
 
-    private final float score;
+    private float score;
     private final RectF relativeCoordinate;
     private final List<PointF> relativeKeyPoints;
 
@@ -32,6 +33,26 @@ public final class Face {
         this.relativeKeyPoints = relativeKeyPoints;
     }
 
+    //Empty face to be filled in place by a decoder
+    public Face(int numKeyPoints) {
+        this.relativeCoordinate = new RectF();
+        this.relativeKeyPoints = new ArrayList<>(numKeyPoints);
+        for (int i = 0; i < numKeyPoints; i++)
+            this.relativeKeyPoints.add(new PointF());
+    }
+
+    //Copies score, box and key points of a face with as many key points
+    public void set(Face face) {
+        this.score = face.score;
+        this.relativeCoordinate.set(face.relativeCoordinate);
+        for (int i = 0; i < this.relativeKeyPoints.size(); i++)
+            this.relativeKeyPoints.get(i).set(face.relativeKeyPoints.get(i));
+    }
+
+    public void setScore(float score) {
+        this.score = score;
+    }
+
     public float getScore() {
         return score;
     }
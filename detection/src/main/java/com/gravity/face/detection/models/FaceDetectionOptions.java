@@ -1,13 +1,75 @@
 package com.gravity.face.detection.models;
 
+import java.util.Objects;
+
 public final class FaceDetectionOptions {
 
+    public enum BackpressurePolicy {
+        //Single slot mailbox, a new frame replaces the pending one
+        LATEST_ONLY,
+        //Keeps up to queueDepth frames and drops the oldest one when full
+        DROP_OLDEST,
+        //Blocks the caller of detect while queueDepth frames are pending
+        BLOCK
+    }
+
+    public enum InputBitmapMode {
+        //Results keep the frame they were detected on until they are released
+        FULL,
+        //Results keep a downscaled copy and the frame is released right after inference
+        THUMBNAIL,
+        //Results keep no image and the frame is released right after inference
+        NONE
+    }
+
     private final float minConfidence;
     private final int maxNumberOfFaces;
+    private final TensorToFacesOptions.DecoderMode decoderMode;
+    private final int maxCandidatesPerFace;
+    private final TensorToFacesOptions.NmsStrategy nmsStrategy;
+    private final BackpressurePolicy backpressurePolicy;
+    private final int queueDepth;
+    private final long maxFrameAgeMillis;
+    private final int numInterpreters;
+    private final int maxBatchSize;
+    private final boolean pooledResults;
+    private final boolean resultLeakDetection;
+    private final InputBitmapMode inputBitmapMode;
+    private final int thumbnailSize;
+    private final long maxRetainedBytes;
+    private final int maxKeyframeInterval;
+    private final float maxPredictionError;
+    private final float maxFrameDifference;
+    private final int maxReusedFrames;
+    private final boolean roiDetection;
+    private final float roiScale;
+    private final int fullFrameInterval;
+    private final boolean shareInterpreters;
 
     private FaceDetectionOptions(Builder builder) {
         this.minConfidence = builder.minConfidence;
         this.maxNumberOfFaces = builder.maxNumberOfFaces;
+        this.decoderMode = builder.decoderMode;
+        this.maxCandidatesPerFace = builder.maxCandidatesPerFace;
+        this.nmsStrategy = builder.nmsStrategy;
+        this.backpressurePolicy = builder.backpressurePolicy;
+        this.queueDepth = builder.queueDepth;
+        this.maxFrameAgeMillis = builder.maxFrameAgeMillis;
+        this.numInterpreters = builder.numInterpreters;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.pooledResults = builder.pooledResults;
+        this.resultLeakDetection = builder.resultLeakDetection;
+        this.inputBitmapMode = builder.inputBitmapMode;
+        this.thumbnailSize = builder.thumbnailSize;
+        this.maxRetainedBytes = builder.maxRetainedBytes;
+        this.maxKeyframeInterval = builder.maxKeyframeInterval;
+        this.maxPredictionError = builder.maxPredictionError;
+        this.maxFrameDifference = builder.maxFrameDifference;
+        this.maxReusedFrames = builder.maxReusedFrames;
+        this.roiDetection = builder.roiDetection;
+        this.roiScale = builder.roiScale;
+        this.fullFrameInterval = builder.fullFrameInterval;
+        this.shareInterpreters = builder.shareInterpreters;
     }
 
     public float getMinConfidence() {
@@ -18,9 +80,114 @@ public final class FaceDetectionOptions {
         return maxNumberOfFaces;
     }
 
+    public TensorToFacesOptions.DecoderMode getDecoderMode() {
+        return decoderMode;
+    }
+
+    public int getMaxCandidatesPerFace() {
+        return maxCandidatesPerFace;
+    }
+
+    public TensorToFacesOptions.NmsStrategy getNmsStrategy() {
+        return nmsStrategy;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getMaxFrameAgeMillis() {
+        return maxFrameAgeMillis;
+    }
+
+    public int getNumInterpreters() {
+        return numInterpreters;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public boolean isPooledResults() {
+        return pooledResults;
+    }
+
+    public boolean isResultLeakDetection() {
+        return resultLeakDetection;
+    }
+
+    public InputBitmapMode getInputBitmapMode() {
+        return inputBitmapMode;
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    public int getMaxKeyframeInterval() {
+        return maxKeyframeInterval;
+    }
+
+    public float getMaxPredictionError() {
+        return maxPredictionError;
+    }
+
+    public float getMaxFrameDifference() {
+        return maxFrameDifference;
+    }
+
+    public int getMaxReusedFrames() {
+        return maxReusedFrames;
+    }
+
+    public boolean isRoiDetection() {
+        return roiDetection;
+    }
+
+    public float getRoiScale() {
+        return roiScale;
+    }
+
+    public int getFullFrameInterval() {
+        return fullFrameInterval;
+    }
+
+    public boolean isShareInterpreters() {
+        return shareInterpreters;
+    }
+
     public final static class Builder {
         private float minConfidence = 0.5f;
         private int maxNumberOfFaces = -1;
+        private TensorToFacesOptions.DecoderMode decoderMode = TensorToFacesOptions.DecoderMode.FLAT;
+        private int maxCandidatesPerFace = -1;
+        private TensorToFacesOptions.NmsStrategy nmsStrategy = TensorToFacesOptions.NmsStrategy.WEIGHTED;
+        private BackpressurePolicy backpressurePolicy = BackpressurePolicy.DROP_OLDEST;
+        private int queueDepth = 10;
+        private long maxFrameAgeMillis = -1;
+        private int numInterpreters = 1;
+        private int maxBatchSize = 8;
+        private boolean pooledResults = false;
+        private boolean resultLeakDetection = false;
+        private InputBitmapMode inputBitmapMode = InputBitmapMode.FULL;
+        private int thumbnailSize = 160;
+        private long maxRetainedBytes = -1;
+        private int maxKeyframeInterval = 1;
+        private float maxPredictionError = 0.1f;
+        private float maxFrameDifference = -1f;
+        private int maxReusedFrames = 30;
+        private boolean roiDetection = false;
+        private float roiScale = 2.5f;
+        private int fullFrameInterval = 10;
+        private boolean shareInterpreters = false;
 
         public Builder() {
         }
@@ -35,6 +202,129 @@ public final class FaceDetectionOptions {
             return this;
         }
 
+        public Builder setDecoderMode(TensorToFacesOptions.DecoderMode decoderMode) {
+            this.decoderMode = Objects.requireNonNull(decoderMode);
+            return this;
+        }
+
+        //Bounds the boxes kept for suppression to maxNumberOfFaces * maxCandidatesPerFace, -1 keeps all of them
+        public Builder setMaxCandidatesPerFace(int maxCandidatesPerFace) {
+            this.maxCandidatesPerFace = maxCandidatesPerFace;
+            return this;
+        }
+
+        public Builder setNmsStrategy(TensorToFacesOptions.NmsStrategy nmsStrategy) {
+            this.nmsStrategy = Objects.requireNonNull(nmsStrategy);
+            return this;
+        }
+
+        public Builder setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+            this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy);
+            return this;
+        }
+
+        //Number of pending frames for DROP_OLDEST and BLOCK policies
+        public Builder setQueueDepth(int queueDepth) {
+            this.queueDepth = queueDepth;
+            return this;
+        }
+
+        //Frames pending longer than this are discarded before inference, -1 disables the deadline
+        public Builder setMaxFrameAgeMillis(long maxFrameAgeMillis) {
+            this.maxFrameAgeMillis = maxFrameAgeMillis;
+            return this;
+        }
+
+        //Interpreters available to concurrent process calls
+        public Builder setNumInterpreters(int numInterpreters) {
+            this.numInterpreters = numInterpreters;
+            return this;
+        }
+
+        //Frames per interpreter call in detectBatch, longer lists are split into several calls
+        public Builder setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        //Borrows results from a bounded pool, the result listener or caller of process owns each result until it calls release
+        public Builder setPooledResults(boolean pooledResults) {
+            this.pooledResults = pooledResults;
+            return this;
+        }
+
+        //Reports pooled results garbage collected without release to the error listener, for debugging
+        public Builder setResultLeakDetection(boolean resultLeakDetection) {
+            this.resultLeakDetection = resultLeakDetection;
+            return this;
+        }
+
+        //Image attached to results, full frames count against the memory budget until their result is released
+        public Builder setInputBitmapMode(InputBitmapMode inputBitmapMode) {
+            this.inputBitmapMode = Objects.requireNonNull(inputBitmapMode);
+            return this;
+        }
+
+        //Longer side of THUMBNAIL images in pixels
+        public Builder setThumbnailSize(int thumbnailSize) {
+            this.thumbnailSize = thumbnailSize;
+            return this;
+        }
+
+        //Bytes of frames the pipeline may retain, past it detect drops the oldest pending frames or blocks with the BLOCK policy, -1 disables the budget
+        public Builder setMaxRetainedBytes(long maxRetainedBytes) {
+            this.maxRetainedBytes = maxRetainedBytes;
+            return this;
+        }
+
+        //Runs the detector at most every this many frames and predicts the faces of the frames in between, 1 detects every frame
+        public Builder setMaxKeyframeInterval(int maxKeyframeInterval) {
+            this.maxKeyframeInterval = maxKeyframeInterval;
+            return this;
+        }
+
+        //Error of predicted boxes relative to the face width past which the detector runs more often, below half of it runs less often
+        public Builder setMaxPredictionError(float maxPredictionError) {
+            this.maxPredictionError = maxPredictionError;
+            return this;
+        }
+
+        //Mean luminance change out of 255 under which a frame reuses the result of the last processed frame instead of running inference, -1 processes every frame
+        public Builder setMaxFrameDifference(float maxFrameDifference) {
+            this.maxFrameDifference = maxFrameDifference;
+            return this;
+        }
+
+        //Frames in a row that may reuse a result before one is processed again
+        public Builder setMaxReusedFrames(int maxReusedFrames) {
+            this.maxReusedFrames = maxReusedFrames;
+            return this;
+        }
+
+        //Detects in a window around the faces of the last detection, small faces keep more pixels through the model input resize
+        public Builder setRoiDetection(boolean roiDetection) {
+            this.roiDetection = roiDetection;
+            return this;
+        }
+
+        //Side of the detection window relative to the longer side of the last faces
+        public Builder setRoiScale(float roiScale) {
+            this.roiScale = roiScale;
+            return this;
+        }
+
+        //Detections between whole frame searches that pick up new faces, a lost face searches the whole next frame
+        public Builder setFullFrameInterval(int fullFrameInterval) {
+            this.fullFrameInterval = fullFrameInterval;
+            return this;
+        }
+
+        //Runs on the interpreters of other detections with the same model and number of interpreters instead of creating its own
+        public Builder setShareInterpreters(boolean shareInterpreters) {
+            this.shareInterpreters = shareInterpreters;
+            return this;
+        }
+
         public FaceDetectionOptions build() {
             FaceDetectionOptions options = new FaceDetectionOptions(this);
             validate(options);
@@ -48,6 +338,48 @@ public final class FaceDetectionOptions {
             if (options.getMinConfidence() < 0 || options.getMinConfidence() > 1) {
                 throw new IllegalArgumentException("MinConfidence must be between 0 and 1");
             }
+            if (options.getMaxCandidatesPerFace() == 0 || options.getMaxCandidatesPerFace() < -1) {
+                throw new IllegalArgumentException("MaxCandidatesPerFace must be greater than 0 or -1, maxCandidatesPerFace: " + options.getMaxCandidatesPerFace());
+            }
+            if (options.getDecoderMode() == TensorToFacesOptions.DecoderMode.OBJECT && options.getNmsStrategy() != TensorToFacesOptions.NmsStrategy.WEIGHTED) {
+                throw new IllegalArgumentException("Object decoder mode only supports weighted suppression, nmsStrategy: " + options.getNmsStrategy());
+            }
+            if (options.getQueueDepth() < 1) {
+                throw new IllegalArgumentException("QueueDepth must be greater than 0, queueDepth: " + options.getQueueDepth());
+            }
+            if (options.getMaxFrameAgeMillis() == 0 || options.getMaxFrameAgeMillis() < -1) {
+                throw new IllegalArgumentException("MaxFrameAgeMillis must be greater than 0 or -1, maxFrameAgeMillis: " + options.getMaxFrameAgeMillis());
+            }
+            if (options.getNumInterpreters() < 1) {
+                throw new IllegalArgumentException("NumInterpreters must be greater than 0, numInterpreters: " + options.getNumInterpreters());
+            }
+            if (options.getMaxBatchSize() < 1) {
+                throw new IllegalArgumentException("MaxBatchSize must be greater than 0, maxBatchSize: " + options.getMaxBatchSize());
+            }
+            if (options.getThumbnailSize() < 1) {
+                throw new IllegalArgumentException("ThumbnailSize must be greater than 0, thumbnailSize: " + options.getThumbnailSize());
+            }
+            if (options.getMaxRetainedBytes() == 0 || options.getMaxRetainedBytes() < -1) {
+                throw new IllegalArgumentException("MaxRetainedBytes must be greater than 0 or -1, maxRetainedBytes: " + options.getMaxRetainedBytes());
+            }
+            if (options.getMaxKeyframeInterval() < 1) {
+                throw new IllegalArgumentException("MaxKeyframeInterval must be greater than 0, maxKeyframeInterval: " + options.getMaxKeyframeInterval());
+            }
+            if (options.getMaxPredictionError() <= 0) {
+                throw new IllegalArgumentException("MaxPredictionError must be greater than 0, maxPredictionError: " + options.getMaxPredictionError());
+            }
+            if (options.getMaxFrameDifference() <= 0 && options.getMaxFrameDifference() != -1) {
+                throw new IllegalArgumentException("MaxFrameDifference must be greater than 0 or -1, maxFrameDifference: " + options.getMaxFrameDifference());
+            }
+            if (options.getMaxReusedFrames() < 1) {
+                throw new IllegalArgumentException("MaxReusedFrames must be greater than 0, maxReusedFrames: " + options.getMaxReusedFrames());
+            }
+            if (options.getRoiScale() < 1) {
+                throw new IllegalArgumentException("RoiScale must be at least 1, roiScale: " + options.getRoiScale());
+            }
+            if (options.getFullFrameInterval() < 1) {
+                throw new IllegalArgumentException("FullFrameInterval must be greater than 0, fullFrameInterval: " + options.getFullFrameInterval());
+            }
         }
     }
 }
@@ -2,22 +2,114 @@ package com.gravity.face.detection.models;
 
 import android.graphics.Bitmap;
 
+import com.gravity.face.core.RecyclableResult;
+import com.gravity.face.core.utils.BitmapFrame;
+import com.gravity.face.core.utils.ImageFrame;
+
+import java.util.ArrayList;
 import java.util.List;
 
-public final class FaceDetectionResult {
+public final class FaceDetectionResult extends RecyclableResult {
     private final List<Face> faces;
-    private final Bitmap inputBitmap;
+    private ImageFrame inputFrame;
+    //Increases with every submitted frame
+    private long frameId;
+    //Faces extrapolated from earlier detections instead of detected on this frame
+    private boolean predicted;
+    //Faces of the last processed frame, this frame barely changed
+    private boolean reused;
+    //Frame the reused faces were detected on
+    private long sourceFrameId;
+    //Faces of earlier frames kept to be filled again, indexed like the decoder output
+    private final List<Face> spareFaces;
 
-    public FaceDetectionResult(List<Face> faces, Bitmap inputBitmap) {
+    public FaceDetectionResult(List<Face> faces, ImageFrame inputFrame, long frameId) {
         this.faces = faces;
-        this.inputBitmap = inputBitmap;
+        this.inputFrame = inputFrame;
+        this.frameId = frameId;
+        this.spareFaces = new ArrayList<>();
+    }
+
+    //Result of a frame outside the detection stream, like the ones built before frames were numbered
+    public FaceDetectionResult(List<Face> faces, Bitmap inputBitmap) {
+        this(faces, inputBitmap != null ? new BitmapFrame(inputBitmap) : null, -1);
+    }
+
+    //Empty result to be filled in place, for result pools
+    public FaceDetectionResult() {
+        this(new ArrayList<>(), null, 0);
     }
 
     public List<Face> getFaces() {
         return faces;
     }
 
+    //Null when the frame did not come from a bitmap
     public Bitmap getInputBitmap() {
-        return inputBitmap;
+        return inputFrame instanceof BitmapFrame ? ((BitmapFrame) inputFrame).getBitmap() : null;
+    }
+
+    public ImageFrame getInputFrame() {
+        return inputFrame;
+    }
+
+    public long getFrameId() {
+        return frameId;
+    }
+
+    public boolean isPredicted() {
+        return predicted;
+    }
+
+    public void setPredicted(boolean predicted) {
+        this.predicted = predicted;
+    }
+
+    public boolean isReused() {
+        return reused;
+    }
+
+    public void setReused(boolean reused) {
+        this.reused = reused;
+    }
+
+    //Frame the faces were detected on, the frame itself unless they were reused
+    public long getSourceFrameId() {
+        return this.reused ? this.sourceFrameId : this.frameId;
+    }
+
+    public void setSourceFrameId(long sourceFrameId) {
+        this.sourceFrameId = sourceFrameId;
+    }
+
+    public void setInputFrame(ImageFrame inputFrame) {
+        this.inputFrame = inputFrame;
+    }
+
+    public void setFrameId(long frameId) {
+        this.frameId = frameId;
+    }
+
+    //Face at index of an earlier frame, or a new one when there is none with the same number of key points
+    public Face obtainFace(int index, int numKeyPoints) {
+        if (index < this.spareFaces.size() && this.spareFaces.get(index).getRelativeKeyPoints().size() == numKeyPoints)
+            return this.spareFaces.get(index);
+
+        Face face = new Face(numKeyPoints);
+        if (index < this.spareFaces.size())
+            this.spareFaces.set(index, face);
+        else if (index == this.spareFaces.size())
+            this.spareFaces.add(face);
+        return face;
+    }
+
+    @Override
+    protected void recycle() {
+        this.faces.clear();
+        this.inputFrame = null;
+        this.frameId = 0;
+        this.predicted = false;
+        this.reused = false;
+        this.sourceFrameId = 0;
     }
 }
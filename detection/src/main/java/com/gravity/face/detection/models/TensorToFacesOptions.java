@@ -1,6 +1,23 @@
 package com.gravity.face.detection.models;
 
 public final class TensorToFacesOptions {
+
+    public enum DecoderMode {
+        //Decodes every candidate into Face objects, then suppresses and projects them
+        OBJECT,
+        //Decodes into reusable flat buffers and only materializes surviving faces
+        FLAT
+    }
+
+    public enum NmsStrategy {
+        //Blends every overlapping box weighted by its score
+        WEIGHTED,
+        //Keeps the highest scored box of every overlapping group
+        HARD,
+        //Same result as WEIGHTED, but only compares boxes sharing a grid cell, for large candidate sets
+        WEIGHTED_GRID
+    }
+
     private final int maxNumberOfFaces;
     private final int numClasses;
     private final int numBoxes;
@@ -15,6 +32,10 @@ public final class TensorToFacesOptions {
     private final float widthScale;
     private final float heightScale;
     private final float iouThreshold;
+    private final DecoderMode decoderMode;
+    private final int maxCandidatesPerFace;
+    private final NmsStrategy nmsStrategy;
+    private final float minScoreLogitThreshold;
 
     private TensorToFacesOptions(int maxNumberOfFaces,
                                  int numBoxes,
@@ -28,7 +49,10 @@ public final class TensorToFacesOptions {
                                  float yScale,
                                  float widthScale,
                                  float heightScale,
-                                 float iouThreshold
+                                 float iouThreshold,
+                                 DecoderMode decoderMode,
+                                 int maxCandidatesPerFace,
+                                 NmsStrategy nmsStrategy
     ) {
         this.maxNumberOfFaces = maxNumberOfFaces;
         this.numClasses = 1;
@@ -44,6 +68,10 @@ public final class TensorToFacesOptions {
         this.widthScale = widthScale;
         this.heightScale = heightScale;
         this.iouThreshold = iouThreshold;
+        this.decoderMode = decoderMode;
+        this.maxCandidatesPerFace = maxCandidatesPerFace;
+        this.nmsStrategy = nmsStrategy;
+        this.minScoreLogitThreshold = calculateLogitThreshold(minScoreThreshold, scoreClippingThreshold);
     }
 
     public int getMaxNumberOfFaces() {
@@ -102,7 +130,57 @@ public final class TensorToFacesOptions {
         return iouThreshold;
     }
 
+    public DecoderMode getDecoderMode() {
+        return decoderMode;
+    }
+
+    public int getMaxCandidatesPerFace() {
+        return maxCandidatesPerFace;
+    }
+
+    public NmsStrategy getNmsStrategy() {
+        return nmsStrategy;
+    }
+
+    //Number of scored boxes kept for suppression, bounded by maxNumberOfFaces unless it is -1
+    public int getMaxCandidates() {
+        if (maxNumberOfFaces == -1 || maxCandidatesPerFace == -1)
+            return numBoxes;
+        return (int) Math.min(numBoxes, (long) maxNumberOfFaces * maxCandidatesPerFace);
+    }
+
+    //Raw score below which a box can not reach minScoreThreshold after the sigmoid
+    public float getMinScoreLogitThreshold() {
+        return minScoreLogitThreshold;
+    }
+
+    private static float calculateLogitThreshold(double minScoreThreshold, double scoreClippingThreshold) {
+        if (scoreClippingThreshold <= 0 || minScoreThreshold <= 0 || minScoreThreshold >= 1)
+            return Float.NEGATIVE_INFINITY;
+        //Loosened by a small margin so float rounding of the sigmoid can not reject a box the exact check accepts
+        double logit = Math.log(minScoreThreshold / (1.0 - minScoreThreshold)) - 1e-3;
+        if (logit <= -scoreClippingThreshold)
+            return Float.NEGATIVE_INFINITY;
+        return (float) logit;
+    }
+
     public static TensorToFacesOptions withDefaultValues(double minScoreThreshold, int maxNumberOfFaces) {
+        return withDefaultValues(minScoreThreshold, maxNumberOfFaces, DecoderMode.FLAT, -1, NmsStrategy.WEIGHTED);
+    }
+
+    public static TensorToFacesOptions withDefaultValues(FaceDetectionOptions options) {
+        return withDefaultValues(options.getMinConfidence(),
+                options.getMaxNumberOfFaces(),
+                options.getDecoderMode(),
+                options.getMaxCandidatesPerFace(),
+                options.getNmsStrategy());
+    }
+
+    public static TensorToFacesOptions withDefaultValues(double minScoreThreshold,
+                                                        int maxNumberOfFaces,
+                                                        DecoderMode decoderMode,
+                                                        int maxCandidatesPerFace,
+                                                        NmsStrategy nmsStrategy) {
         return new TensorToFacesOptions(
                 maxNumberOfFaces,
                 896,
@@ -116,6 +194,9 @@ public final class TensorToFacesOptions {
                 128.0f,
                 128.0f,
                 128.0f,
-                0.3f);
+                0.3f,
+                decoderMode,
+                maxCandidatesPerFace,
+                nmsStrategy);
     }
 }
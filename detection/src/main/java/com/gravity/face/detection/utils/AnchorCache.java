@@ -0,0 +1,72 @@
+package com.gravity.face.detection.utils;
+
+import com.gravity.face.detection.models.AnchorOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class AnchorCache {
+
+    //Header of serialized anchor tables
+    private static final int MAGIC = 0x414E4348;
+    //Process wide packed tables, shared by every detector, must not be modified
+    private static final Map<AnchorOptions, float[]> TABLES = new ConcurrentHashMap<>();
+
+    private AnchorCache() {
+    }
+
+    public static float[] get(AnchorOptions options) {
+        return TABLES.computeIfAbsent(Objects.requireNonNull(options), AnchorGenerator::generatePacked);
+    }
+
+    public static float[] load(AnchorOptions options, InputStream inputStream) throws IOException {
+        float[] anchors = read(inputStream);
+        //A table of other options would be cached for these and fail every decode
+        int expectedLength = AnchorGenerator.countAnchors(Objects.requireNonNull(options)) * AnchorGenerator.ANCHOR_SIZE;
+        if (anchors.length != expectedLength)
+            throw new IOException("Serialized anchor table does not match the options, length: " + anchors.length + ", expected: " + expectedLength);
+        float[] previous = TABLES.putIfAbsent(Objects.requireNonNull(options), anchors);
+        return previous != null ? previous : anchors;
+    }
+
+    public static void save(AnchorOptions options, OutputStream outputStream) throws IOException {
+        write(get(options), outputStream);
+    }
+
+    public static void clear() {
+        TABLES.clear();
+    }
+
+    private static float[] read(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+        if (dataInputStream.readInt() != MAGIC)
+            throw new IOException("Input is not a serialized anchor table");
+        int length = dataInputStream.readInt();
+        if (length <= 0 || length % AnchorGenerator.ANCHOR_SIZE != 0)
+            throw new IOException("Serialized anchor table has invalid length: " + length);
+
+        float[] anchors = new float[length];
+        for (int i = 0; i < length; i++) {
+            anchors[i] = dataInputStream.readFloat();
+        }
+        return anchors;
+    }
+
+    private static void write(float[] anchors, OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeInt(anchors.length);
+        for (float value : anchors) {
+            dataOutputStream.writeFloat(value);
+        }
+        dataOutputStream.flush();
+    }
+}
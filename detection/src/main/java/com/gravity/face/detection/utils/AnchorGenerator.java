@@ -10,65 +10,69 @@ import java.util.Objects;
 
 public final class AnchorGenerator {
 
+    //Number of values per anchor in a packed table (xCenter, yCenter, width, height)
+    public static final int ANCHOR_SIZE = 4;
+
     public static List<Anchor> generate(AnchorOptions options) {
+        return unpack(generatePacked(options));
+    }
+
+    public static float[] generatePacked(AnchorOptions options) {
         if (options.getNumLayers() <= 0)
             throw new IllegalArgumentException("NumLayers must be greater than 0, numLayers: " + options.getNumLayers());
         if (options.getNumLayers() != Objects.requireNonNull(options.getStrides()).size())
             throw new IllegalArgumentException("Strides size must equal to NumLayers");
 
-        List<Anchor> anchors = new ArrayList<>();
+        float[] anchors = new float[countAnchors(options) * ANCHOR_SIZE];
+        int numAnchors = 0;
 
         int layerId = 0;
         while (layerId < options.getNumLayers()) {
-            List<Double> anchorHeight = new ArrayList<>();
-            List<Double> anchorWidth = new ArrayList<>();
-            List<Double> aspectRatios = new ArrayList<>();
-            List<Double> scales = new ArrayList<>();
-
             int lastSameStrideLayer = layerId;
             while (lastSameStrideLayer < options.getStrides().size() &&
                     options.getStrides().get(lastSameStrideLayer).equals(options.getStrides().get(layerId))) {
-                double scale = calculateScale(options.getMinScale(), options.getMaxScale(), lastSameStrideLayer, options.getStrides().size());
-                if (lastSameStrideLayer == 0 && options.isReduceBoxesInLowestLayer()) {
-                    aspectRatios.add(1.0);
-                    aspectRatios.add(2.0);
-                    aspectRatios.add(0.5);
-                    scales.add(0.1);
-                    scales.add(scale);
-                    scales.add(scale);
+                lastSameStrideLayer++;
+            }
+
+            int anchorsPerCell = countAnchorsPerCell(options, layerId, lastSameStrideLayer);
+            double[] aspectRatios = new double[anchorsPerCell];
+            double[] scales = new double[anchorsPerCell];
+            int count = 0;
+            for (int layer = layerId; layer < lastSameStrideLayer; layer++) {
+                double scale = calculateScale(options.getMinScale(), options.getMaxScale(), layer, options.getStrides().size());
+                if (layer == 0 && options.isReduceBoxesInLowestLayer()) {
+                    aspectRatios[count] = 1.0;
+                    scales[count++] = 0.1;
+                    aspectRatios[count] = 2.0;
+                    scales[count++] = scale;
+                    aspectRatios[count] = 0.5;
+                    scales[count++] = scale;
                 } else {
                     for (int i = 0; i < options.getAspectRatios().size(); i++) {
-                        aspectRatios.add(options.getAspectRatios().get(i));
-                        scales.add(scale);
+                        aspectRatios[count] = options.getAspectRatios().get(i);
+                        scales[count++] = scale;
                     }
                     if (options.getInterpolatedScaleAspectRatio() > 0.0) {
-                        double scaleNext = lastSameStrideLayer == options.getStrides().size() - 1 ?
-                                1.0 : calculateScale(options.getMinScale(), options.getMaxScale(), lastSameStrideLayer, options.getStrides().size());
-                        scales.add(Math.sqrt(scale * scaleNext));
-                        aspectRatios.add(options.getInterpolatedScaleAspectRatio());
+                        double scaleNext = layer == options.getStrides().size() - 1 ?
+                                1.0 : calculateScale(options.getMinScale(), options.getMaxScale(), layer, options.getStrides().size());
+                        aspectRatios[count] = options.getInterpolatedScaleAspectRatio();
+                        scales[count++] = Math.sqrt(scale * scaleNext);
                     }
                 }
-                lastSameStrideLayer++;
             }
-            for (int i = 0; i < aspectRatios.size(); i++) {
-                double ratioSqrt = Math.sqrt(aspectRatios.get(i));
-                anchorHeight.add(scales.get(i) / ratioSqrt);
-                anchorWidth.add(scales.get(i) * ratioSqrt);
+            double[] anchorHeight = new double[anchorsPerCell];
+            double[] anchorWidth = new double[anchorsPerCell];
+            for (int i = 0; i < anchorsPerCell; i++) {
+                double ratioSqrt = Math.sqrt(aspectRatios[i]);
+                anchorHeight[i] = scales[i] / ratioSqrt;
+                anchorWidth[i] = scales[i] * ratioSqrt;
             }
-            int featureMapHeight = 0;
-            int featureMapWidth = 0;
 
-            if (options.getFeatureMapHeight().size() > 0) {
-                featureMapHeight = options.getFeatureMapHeight().get(layerId);
-                featureMapWidth = options.getFeatureMapWidth().get(layerId);
-            } else {
-                int stride = options.getStrides().get(layerId);
-                featureMapHeight = (int) Math.ceil(1.0 * options.getInputSizeHeight() / stride);
-                featureMapWidth = (int) Math.ceil(1.0 * options.getInputSizeWidth() / stride);
-            }
+            int featureMapHeight = getFeatureMapHeight(options, layerId);
+            int featureMapWidth = getFeatureMapWidth(options, layerId);
             for (int y = 0; y < featureMapHeight; y++) {
                 for (int x = 0; x < featureMapWidth; x++) {
-                    for (int anchorId = 0; anchorId < anchorHeight.size(); anchorId++) {
+                    for (int anchorId = 0; anchorId < anchorsPerCell; anchorId++) {
                         double xCenter = (x + options.getAnchorOffsetX()) * 1.0 / featureMapWidth;
                         double yCenter = (y + options.getAnchorOffsetY()) * 1.0 / featureMapHeight;
                         double width = 0;
@@ -77,10 +81,15 @@ public final class AnchorGenerator {
                             width = 1.0;
                             height = 1.0;
                         } else {
-                            width = anchorWidth.get(anchorId);
-                            height = anchorHeight.get(anchorId);
+                            width = anchorWidth[anchorId];
+                            height = anchorHeight[anchorId];
                         }
-                        anchors.add(new Anchor((float) xCenter, (float) yCenter, (float) width, (float) height));
+                        int offset = numAnchors * ANCHOR_SIZE;
+                        anchors[offset] = (float) xCenter;
+                        anchors[offset + 1] = (float) yCenter;
+                        anchors[offset + 2] = (float) width;
+                        anchors[offset + 3] = (float) height;
+                        numAnchors++;
                     }
                 }
             }
@@ -90,6 +99,72 @@ public final class AnchorGenerator {
         return anchors;
     }
 
+    public static float[] pack(List<Anchor> anchors) {
+        float[] packed = new float[anchors.size() * ANCHOR_SIZE];
+        for (int i = 0; i < anchors.size(); i++) {
+            Anchor anchor = anchors.get(i);
+            packed[i * ANCHOR_SIZE] = anchor.getXCenter();
+            packed[i * ANCHOR_SIZE + 1] = anchor.getYCenter();
+            packed[i * ANCHOR_SIZE + 2] = anchor.getWidth();
+            packed[i * ANCHOR_SIZE + 3] = anchor.getHeight();
+        }
+        return packed;
+    }
+
+    public static List<Anchor> unpack(float[] packed) {
+        if (packed.length % ANCHOR_SIZE != 0)
+            throw new IllegalArgumentException("Packed anchors length must be a multiple of " + ANCHOR_SIZE + ", length: " + packed.length);
+
+        List<Anchor> anchors = new ArrayList<>(packed.length / ANCHOR_SIZE);
+        for (int i = 0; i < packed.length; i += ANCHOR_SIZE) {
+            anchors.add(new Anchor(packed[i], packed[i + 1], packed[i + 2], packed[i + 3]));
+        }
+        return anchors;
+    }
+
+    //Anchors generatePacked produces for the options
+    static int countAnchors(AnchorOptions options) {
+        int numAnchors = 0;
+        int layerId = 0;
+        while (layerId < options.getNumLayers()) {
+            int lastSameStrideLayer = layerId;
+            while (lastSameStrideLayer < options.getStrides().size() &&
+                    options.getStrides().get(lastSameStrideLayer).equals(options.getStrides().get(layerId))) {
+                lastSameStrideLayer++;
+            }
+            numAnchors += getFeatureMapHeight(options, layerId) * getFeatureMapWidth(options, layerId) *
+                    countAnchorsPerCell(options, layerId, lastSameStrideLayer);
+            layerId = lastSameStrideLayer;
+        }
+        return numAnchors;
+    }
+
+    private static int countAnchorsPerCell(AnchorOptions options, int firstLayer, int lastLayer) {
+        int count = 0;
+        for (int layer = firstLayer; layer < lastLayer; layer++) {
+            if (layer == 0 && options.isReduceBoxesInLowestLayer()) {
+                count += 3;
+            } else {
+                count += options.getAspectRatios().size();
+                if (options.getInterpolatedScaleAspectRatio() > 0.0)
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    private static int getFeatureMapHeight(AnchorOptions options, int layerId) {
+        if (options.getFeatureMapHeight().size() > 0)
+            return options.getFeatureMapHeight().get(layerId);
+        return (int) Math.ceil(1.0 * options.getInputSizeHeight() / options.getStrides().get(layerId));
+    }
+
+    private static int getFeatureMapWidth(AnchorOptions options, int layerId) {
+        if (options.getFeatureMapWidth().size() > 0)
+            return options.getFeatureMapWidth().get(layerId);
+        return (int) Math.ceil(1.0 * options.getInputSizeWidth() / options.getStrides().get(layerId));
+    }
+
     private static double calculateScale(double minScale, double maxScale, int strideIndex, int numStrides) {
         if (numStrides == 1) {
             return (minScale + maxScale) * 0.5;
@@ -0,0 +1,87 @@
+package com.gravity.face.detection.utils;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import com.gravity.face.detection.models.Face;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+
+//Picks the part of the frame the detector looks at, an expanded square around the faces of the last detection.
+//Small faces keep more pixels through the model input resize. The whole frame is searched again when a face was lost,
+//at least every fullFrameInterval detections and while no face is known.
+public final class DetectionWindow {
+
+    private final float scale;
+    private final int fullFrameInterval;
+    //Relative union of the faces of the last detection, null to search the whole frame
+    private RectF faces;
+    private int numFaces;
+    private int windowedDetections;
+
+    public DetectionWindow(float scale, int fullFrameInterval) {
+        this.scale = scale;
+        this.fullFrameInterval = fullFrameInterval;
+    }
+
+    //Window in pixels as left, top, right and bottom inside the frame, null to search the whole frame
+    @Nullable
+    public synchronized RectF getWindow(int width, int height) {
+        if (this.faces == null || this.windowedDetections >= this.fullFrameInterval - 1)
+            return null;
+
+        float side = Math.max(this.faces.width() * width, this.faces.height() * height) * this.scale;
+        float centerX = this.faces.centerX() * width;
+        float centerY = this.faces.centerY() * height;
+        RectF window = new RectF(
+                (float) Math.floor(Math.max(0, centerX - side / 2)),
+                (float) Math.floor(Math.max(0, centerY - side / 2)),
+                (float) Math.ceil(Math.min(width, centerX + side / 2)),
+                (float) Math.ceil(Math.min(height, centerY + side / 2)));
+        if (window.width() < 1 || window.height() < 1 || (window.width() >= width && window.height() >= height))
+            return null;
+        return window;
+    }
+
+    //Faces relative to the frame, found in a window or in the whole frame
+    public synchronized void update(List<Face> faces, boolean windowed) {
+        if (windowed) {
+            this.windowedDetections++;
+            if (faces.size() < this.numFaces) {
+                this.faces = null;
+                return;
+            }
+        } else {
+            this.windowedDetections = 0;
+        }
+
+        this.numFaces = faces.size();
+        this.faces = null;
+        for (Face face : faces) {
+            if (this.faces == null)
+                this.faces = new RectF(face.getRelativeCoordinate());
+            else
+                this.faces.union(face.getRelativeCoordinate());
+        }
+    }
+
+    //Maps faces decoded from a window back to the relative coordinates of the frame
+    public static void toFrame(List<Face> faces, RectF window, int width, int height) {
+        for (Face face : faces) {
+            RectF box = face.getRelativeCoordinate();
+            box.set(toFrame(box.left, window.left, window.width(), width),
+                    toFrame(box.top, window.top, window.height(), height),
+                    toFrame(box.right, window.left, window.width(), width),
+                    toFrame(box.bottom, window.top, window.height(), height));
+            for (PointF keyPoint : face.getRelativeKeyPoints())
+                keyPoint.set(toFrame(keyPoint.x, window.left, window.width(), width),
+                        toFrame(keyPoint.y, window.top, window.height(), height));
+        }
+    }
+
+    private static float toFrame(float relative, float offset, float size, int frameSize) {
+        return (offset + relative * size) / frameSize;
+    }
+}
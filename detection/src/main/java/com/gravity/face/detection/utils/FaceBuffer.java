@@ -0,0 +1,74 @@
+package com.gravity.face.detection.utils;
+
+public final class FaceBuffer {
+
+    //Number of values stored per box (left, top, right, bottom)
+    public static final int BOX_SIZE = 4;
+
+    private final int capacity;
+    private final int numKeyPoints;
+    private final float[] scores;
+    private final float[] boxes;
+    private final float[] keyPoints;
+
+    public FaceBuffer(int capacity, int numKeyPoints) {
+        this.capacity = capacity;
+        this.numKeyPoints = numKeyPoints;
+        this.scores = new float[capacity];
+        this.boxes = new float[capacity * BOX_SIZE];
+        this.keyPoints = new float[capacity * numKeyPoints * 2];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getNumKeyPoints() {
+        return numKeyPoints;
+    }
+
+    public float[] getScores() {
+        return scores;
+    }
+
+    public float[] getBoxes() {
+        return boxes;
+    }
+
+    public float[] getKeyPoints() {
+        return keyPoints;
+    }
+
+    public int getKeyPointsSize() {
+        return numKeyPoints * 2;
+    }
+
+    public void copy(int index, FaceBuffer destination, int destinationIndex) {
+        int keyPointsSize = this.getKeyPointsSize();
+        destination.scores[destinationIndex] = this.scores[index];
+        System.arraycopy(this.boxes, index * BOX_SIZE, destination.boxes, destinationIndex * BOX_SIZE, BOX_SIZE);
+        System.arraycopy(this.keyPoints, index * keyPointsSize, destination.keyPoints, destinationIndex * keyPointsSize, keyPointsSize);
+    }
+
+    public float calculateOverlapSimilarity(int index1, int index2) {
+        int offset1 = index1 * BOX_SIZE;
+        int offset2 = index2 * BOX_SIZE;
+        float left = Math.max(this.boxes[offset1], this.boxes[offset2]);
+        float top = Math.max(this.boxes[offset1 + 1], this.boxes[offset2 + 1]);
+        float right = Math.min(this.boxes[offset1 + 2], this.boxes[offset2 + 2]);
+        float bottom = Math.min(this.boxes[offset1 + 3], this.boxes[offset2 + 3]);
+
+        float height = Math.max(0, bottom - top);
+        float width = Math.max(0, right - left);
+
+        float intersectionArea = height * width;
+
+        float unionArea = this.area(index1) + this.area(index2) - intersectionArea;
+        return intersectionArea / unionArea;
+    }
+
+    private float area(int index) {
+        int offset = index * BOX_SIZE;
+        return (this.boxes[offset + 2] - this.boxes[offset]) * (this.boxes[offset + 3] - this.boxes[offset + 1]);
+    }
+}
@@ -0,0 +1,178 @@
+package com.gravity.face.detection.utils;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import com.gravity.face.detection.models.Face;
+import com.gravity.face.detection.models.FaceDetectionResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Constant velocity extrapolation of the boxes and key points of the last detected faces, in the relative coordinates of Face.
+//The detector runs every keyframeInterval frames, the interval grows while predictions stay within maxPredictionError
+//of the detections and halves once they do not.
+public final class FacePredictor {
+
+    //Weight of the latest displacement in the smoothed velocity
+    private static final float VELOCITY_GAIN = 0.6f;
+    //Minimum overlap of a detection with a predicted box to continue its face
+    private static final float MIN_OVERLAP = 0.3f;
+
+    private final int maxKeyframeInterval;
+    private final float maxPredictionError;
+    private final List<State> states;
+    private int keyframeInterval;
+    //Frame id of the last detection, -1 before the first one
+    private long lastKeyframeId;
+
+    public FacePredictor(int maxKeyframeInterval, float maxPredictionError) {
+        this.maxKeyframeInterval = maxKeyframeInterval;
+        this.maxPredictionError = maxPredictionError;
+        this.states = new ArrayList<>();
+        this.keyframeInterval = 1;
+        this.lastKeyframeId = -1;
+    }
+
+    public synchronized int getKeyframeInterval() {
+        return this.keyframeInterval;
+    }
+
+    //Fills the result with the predicted faces and returns true, false when the frame has to be detected
+    public synchronized boolean predict(long frameId, FaceDetectionResult result) {
+        if (this.lastKeyframeId == -1 || frameId - this.lastKeyframeId >= this.keyframeInterval)
+            return false;
+
+        float elapsed = frameId - this.lastKeyframeId;
+        for (int i = 0; i < this.states.size(); i++) {
+            State state = this.states.get(i);
+            Face face = result.obtainFace(i, state.numKeyPoints);
+            state.predict(elapsed, face);
+            result.getFaces().add(face);
+        }
+        return true;
+    }
+
+    //Corrects the faces with a detection and adapts the keyframe interval to how far off the prediction was
+    public synchronized void measure(long frameId, List<Face> faces) {
+        //Frames detected concurrently may finish out of order, older ones would move the faces back
+        if (frameId <= this.lastKeyframeId)
+            return;
+
+        float elapsed = this.lastKeyframeId == -1 ? 0 : frameId - this.lastKeyframeId;
+        Face predicted = new Face(0);
+        boolean[] taken = new boolean[this.states.size()];
+        List<State> states = new ArrayList<>(faces.size());
+        float error = 0;
+        int matched = 0;
+        for (Face face : faces) {
+            int best = -1;
+            float bestOverlap = MIN_OVERLAP;
+            for (int i = 0; i < this.states.size(); i++) {
+                if (taken[i] || this.states.get(i).numKeyPoints != face.getRelativeKeyPoints().size())
+                    continue;
+                this.states.get(i).predictBox(elapsed, predicted.getRelativeCoordinate());
+                float overlap = TensorToFaces.calculateOverlapSimilarity(predicted.getRelativeCoordinate(), face.getRelativeCoordinate());
+                if (overlap >= bestOverlap) {
+                    bestOverlap = overlap;
+                    best = i;
+                }
+            }
+
+            if (best == -1) {
+                states.add(new State(face));
+            } else {
+                taken[best] = true;
+                matched++;
+                error = Math.max(error, this.states.get(best).correct(elapsed, face));
+                states.add(this.states.get(best));
+            }
+        }
+        int unmatched = faces.size() - matched + this.states.size() - matched;
+
+        this.states.clear();
+        this.states.addAll(states);
+        this.lastKeyframeId = frameId;
+        //Without faces there is nothing to predict, a face entering the scene is found by the next detection
+        if (this.states.isEmpty())
+            this.keyframeInterval = 1;
+        //Faces that appeared or disappeared count as a missed prediction
+        else if (unmatched > 0 || error > this.maxPredictionError)
+            this.keyframeInterval = Math.max(1, this.keyframeInterval / 2);
+        else if (error < this.maxPredictionError / 2)
+            this.keyframeInterval = Math.min(this.maxKeyframeInterval, this.keyframeInterval + 1);
+    }
+
+    //Box as left, top, right, bottom followed by the key points, with the velocity of each value per frame
+    private static final class State {
+        private static final int BOX_SIZE = 4;
+
+        private final int numKeyPoints;
+        private final float[] position;
+        private final float[] velocity;
+        private float score;
+
+        private State(Face face) {
+            this.numKeyPoints = face.getRelativeKeyPoints().size();
+            this.position = new float[BOX_SIZE + this.numKeyPoints * 2];
+            this.velocity = new float[this.position.length];
+            this.set(face);
+        }
+
+        private void predictBox(float elapsed, RectF box) {
+            box.set(this.position[0] + this.velocity[0] * elapsed,
+                    this.position[1] + this.velocity[1] * elapsed,
+                    this.position[2] + this.velocity[2] * elapsed,
+                    this.position[3] + this.velocity[3] * elapsed);
+        }
+
+        private void predict(float elapsed, Face face) {
+            face.setScore(this.score);
+            this.predictBox(elapsed, face.getRelativeCoordinate());
+            for (int i = 0; i < this.numKeyPoints; i++) {
+                int offset = BOX_SIZE + i * 2;
+                face.getRelativeKeyPoints().get(i).set(this.position[offset] + this.velocity[offset] * elapsed,
+                        this.position[offset + 1] + this.velocity[offset + 1] * elapsed);
+            }
+        }
+
+        //Returns the mean box error of the prediction relative to the face width
+        private float correct(float elapsed, Face face) {
+            float[] previous = this.position.clone();
+            float error = 0;
+            for (int i = 0; i < BOX_SIZE; i++)
+                error += Math.abs(previous[i] + this.velocity[i] * elapsed - this.getValue(face, i));
+            error /= BOX_SIZE * Math.max(face.getRelativeCoordinate().width(), 1e-6f);
+
+            this.set(face);
+            if (elapsed > 0) {
+                for (int i = 0; i < this.position.length; i++)
+                    this.velocity[i] += VELOCITY_GAIN * ((this.position[i] - previous[i]) / elapsed - this.velocity[i]);
+            }
+            return error;
+        }
+
+        private void set(Face face) {
+            for (int i = 0; i < this.position.length; i++)
+                this.position[i] = this.getValue(face, i);
+            this.score = face.getScore();
+        }
+
+        private float getValue(Face face, int index) {
+            RectF box = face.getRelativeCoordinate();
+            switch (index) {
+                case 0:
+                    return box.left;
+                case 1:
+                    return box.top;
+                case 2:
+                    return box.right;
+                case 3:
+                    return box.bottom;
+                default:
+                    PointF keyPoint = face.getRelativeKeyPoints().get((index - BOX_SIZE) / 2);
+                    return (index - BOX_SIZE) % 2 == 0 ? keyPoint.x : keyPoint.y;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.gravity.face.detection.utils;
+
+import java.util.Arrays;
+
+//Weighted suppression that only compares boxes sharing a cell of a uniform grid, results match WeightedNonMaxSuppression
+public final class GridNonMaxSuppression implements NonMaxSuppression {
+
+    //Below this many candidates the grid costs more than the pairwise scan
+    private static final int MIN_GRID_CANDIDATES = 64;
+    private static final int MAX_GRID_SIZE = 16;
+
+    private final WeightedNonMaxSuppression weightedNonMaxSuppression = new WeightedNonMaxSuppression();
+
+    //Per candidate position buffers
+    private int[] cellRanges = new int[0];
+    private boolean[] suppressed = new boolean[0];
+    private int[] visited = new int[0];
+    private int[] cluster = new int[0];
+    //Grid cells stored as offsets into cellItems
+    private int[] cellOffsets = new int[0];
+    private int[] cellItems = new int[0];
+    private int visitStamp;
+
+    @Override
+    public int process(FaceBuffer input, int[] candidates, int numCandidates, float iouThreshold, FaceBuffer output) {
+        if (numCandidates < MIN_GRID_CANDIDATES || !(iouThreshold >= 0))
+            return this.weightedNonMaxSuppression.process(input, candidates, numCandidates, iouThreshold, output);
+
+        this.ensureCapacity(numCandidates);
+        int gridSize = Math.min(MAX_GRID_SIZE, Math.max(1, (int) Math.ceil(Math.sqrt(numCandidates / 4.0))));
+        if (!this.buildGrid(input, candidates, numCandidates, gridSize))
+            return this.weightedNonMaxSuppression.process(input, candidates, numCandidates, iouThreshold, output);
+
+        int numOutputs = 0;
+        for (int position = 0; position < numCandidates; position++) {
+            if (this.suppressed[position])
+                continue;
+
+            int detection = candidates[position];
+            int clusterSize = this.collectCluster(input, candidates, position, gridSize, iouThreshold);
+
+            if (clusterSize == 0) {
+                input.copy(detection, output, numOutputs++);
+                break;
+            }
+
+            Arrays.sort(this.cluster, 0, clusterSize);
+            WeightedBlend.clear(output, numOutputs);
+            for (int i = 0; i < clusterSize; i++) {
+                this.suppressed[this.cluster[i]] = true;
+                WeightedBlend.accumulate(input, candidates[this.cluster[i]], output, numOutputs);
+            }
+            WeightedBlend.normalize(output, numOutputs, clusterSize);
+            numOutputs++;
+        }
+        return numOutputs;
+    }
+
+    private int collectCluster(FaceBuffer input, int[] candidates, int position, int gridSize, float iouThreshold) {
+        int detection = candidates[position];
+        this.visitStamp++;
+        if (this.visitStamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.visited, 0);
+            this.visitStamp = 1;
+        }
+
+        int clusterSize = 0;
+        int rangeOffset = position * 4;
+        if (this.cellRanges[rangeOffset] < 0)
+            return clusterSize;
+
+        for (int cellY = this.cellRanges[rangeOffset + 1]; cellY <= this.cellRanges[rangeOffset + 3]; cellY++) {
+            for (int cellX = this.cellRanges[rangeOffset]; cellX <= this.cellRanges[rangeOffset + 2]; cellX++) {
+                int cell = cellY * gridSize + cellX;
+                for (int i = this.cellOffsets[cell]; i < this.cellOffsets[cell + 1]; i++) {
+                    int other = this.cellItems[i];
+                    if (this.suppressed[other] || this.visited[other] == this.visitStamp)
+                        continue;
+                    this.visited[other] = this.visitStamp;
+                    if (input.calculateOverlapSimilarity(candidates[other], detection) > iouThreshold)
+                        this.cluster[clusterSize++] = other;
+                }
+            }
+        }
+        return clusterSize;
+    }
+
+    //Buckets every candidate position into the cells its box covers, returns false if no box is finite
+    private boolean buildGrid(FaceBuffer input, int[] candidates, int numCandidates, int gridSize) {
+        float[] boxes = input.getBoxes();
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int position = 0; position < numCandidates; position++) {
+            int offset = candidates[position] * FaceBuffer.BOX_SIZE;
+            if (!isFinite(boxes, offset))
+                continue;
+            minX = Math.min(minX, Math.min(boxes[offset], boxes[offset + 2]));
+            maxX = Math.max(maxX, Math.max(boxes[offset], boxes[offset + 2]));
+            minY = Math.min(minY, Math.min(boxes[offset + 1], boxes[offset + 3]));
+            maxY = Math.max(maxY, Math.max(boxes[offset + 1], boxes[offset + 3]));
+        }
+        if (minX > maxX)
+            return false;
+
+        float cellWidth = maxX > minX ? (maxX - minX) / gridSize : 1.0f;
+        float cellHeight = maxY > minY ? (maxY - minY) / gridSize : 1.0f;
+        int numCells = gridSize * gridSize;
+        if (this.cellOffsets.length < numCells + 1)
+            this.cellOffsets = new int[numCells + 1];
+        Arrays.fill(this.cellOffsets, 0, numCells + 1, 0);
+
+        int numItems = 0;
+        for (int position = 0; position < numCandidates; position++) {
+            int offset = candidates[position] * FaceBuffer.BOX_SIZE;
+            int rangeOffset = position * 4;
+            this.suppressed[position] = false;
+            if (!isFinite(boxes, offset)) {
+                this.cellRanges[rangeOffset] = -1;
+                continue;
+            }
+            this.cellRanges[rangeOffset] = toCell(Math.min(boxes[offset], boxes[offset + 2]), minX, cellWidth, gridSize);
+            this.cellRanges[rangeOffset + 1] = toCell(Math.min(boxes[offset + 1], boxes[offset + 3]), minY, cellHeight, gridSize);
+            this.cellRanges[rangeOffset + 2] = toCell(Math.max(boxes[offset], boxes[offset + 2]), minX, cellWidth, gridSize);
+            this.cellRanges[rangeOffset + 3] = toCell(Math.max(boxes[offset + 1], boxes[offset + 3]), minY, cellHeight, gridSize);
+            for (int cellY = this.cellRanges[rangeOffset + 1]; cellY <= this.cellRanges[rangeOffset + 3]; cellY++) {
+                for (int cellX = this.cellRanges[rangeOffset]; cellX <= this.cellRanges[rangeOffset + 2]; cellX++) {
+                    this.cellOffsets[cellY * gridSize + cellX + 1]++;
+                    numItems++;
+                }
+            }
+        }
+
+        for (int cell = 0; cell < numCells; cell++)
+            this.cellOffsets[cell + 1] += this.cellOffsets[cell];
+        if (this.cellItems.length < numItems)
+            this.cellItems = new int[numItems];
+
+        //Fill cells in position order, reusing cluster as the per cell write cursor
+        int[] cursors = this.cluster;
+        System.arraycopy(this.cellOffsets, 0, cursors, 0, numCells);
+        for (int position = 0; position < numCandidates; position++) {
+            int rangeOffset = position * 4;
+            if (this.cellRanges[rangeOffset] < 0)
+                continue;
+            for (int cellY = this.cellRanges[rangeOffset + 1]; cellY <= this.cellRanges[rangeOffset + 3]; cellY++) {
+                for (int cellX = this.cellRanges[rangeOffset]; cellX <= this.cellRanges[rangeOffset + 2]; cellX++) {
+                    int cell = cellY * gridSize + cellX;
+                    this.cellItems[cursors[cell]++] = position;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int numCandidates) {
+        int size = Math.max(numCandidates, MAX_GRID_SIZE * MAX_GRID_SIZE);
+        if (this.suppressed.length >= size)
+            return;
+        this.cellRanges = new int[size * 4];
+        this.suppressed = new boolean[size];
+        this.visited = new int[size];
+        this.cluster = new int[size];
+        this.visitStamp = 0;
+    }
+
+    private static int toCell(float value, float min, float cellSize, int gridSize) {
+        int cell = (int) ((value - min) / cellSize);
+        return Math.max(0, Math.min(gridSize - 1, cell));
+    }
+
+    private static boolean isFinite(float[] boxes, int offset) {
+        for (int k = 0; k < FaceBuffer.BOX_SIZE; k++) {
+            if (Float.isNaN(boxes[offset + k]) || Float.isInfinite(boxes[offset + k]))
+                return false;
+        }
+        return true;
+    }
+}
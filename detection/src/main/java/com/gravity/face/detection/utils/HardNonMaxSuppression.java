@@ -0,0 +1,25 @@
+package com.gravity.face.detection.utils;
+
+public final class HardNonMaxSuppression implements NonMaxSuppression {
+
+    @Override
+    public int process(FaceBuffer input, int[] candidates, int numCandidates, float iouThreshold, FaceBuffer output) {
+        int numKept = 0;
+        for (int i = 0; i < numCandidates; i++) {
+            int candidate = candidates[i];
+            boolean suppressed = false;
+            for (int j = 0; j < numKept; j++) {
+                if (input.calculateOverlapSimilarity(candidate, candidates[j]) > iouThreshold) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                candidates[numKept] = candidate;
+                input.copy(candidate, output, numKept);
+                numKept++;
+            }
+        }
+        return numKept;
+    }
+}
@@ -1,44 +1,107 @@
 package com.gravity.face.detection.utils;
 
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.ops.ResizeOp;
-import org.tensorflow.lite.support.image.ops.ResizeWithCropOrPadOp;
+import android.util.LruCache;
 
+import com.gravity.face.core.utils.ImageFrame;
+
+import java.nio.ByteBuffer;
+
+//Letterboxes a frame to a centered max dimension square, nearest neighbor resizes and normalizes it in a single pass.
+//Matches ResizeWithCropOrPadOp followed by ResizeOp and NormalizeOp without the intermediate bitmaps, not thread safe.
 public final class ImageProcessorUtil {
 
+    private static final int NUM_CHANNELS = 3;
+    //Source sizes kept, enough for a few cameras or orientations sharing a detector
+    private static final int MAX_CACHED_SIZES = 4;
+
     private final float mean;
     private final float std;
     private final int targetWidth;
     private final int targetHeight;
-    private int currentWidth;
-    private int currentHeight;
-    private ImageProcessor imageProcessor;
+    //Source column and row of every target pixel, -1 for padding, keyed by source size
+    private final LruCache<Long, SamplingTable> samplingTables;
+    private final int[] pixels;
+    private int[] row = new int[0];
 
     public ImageProcessorUtil(float mean, float std, int targetWidth, int targetHeight) {
         this.mean = mean;
         this.std = std;
         this.targetWidth = targetWidth;
         this.targetHeight = targetHeight;
+        this.samplingTables = new LruCache<>(MAX_CACHED_SIZES);
+        this.pixels = new int[targetWidth];
+    }
+
+    public int getOutputSize() {
+        return this.targetWidth * this.targetHeight * NUM_CHANNELS * Float.BYTES;
     }
 
-    public synchronized ImageProcessor getImageProcessor(int currentWidth, int currentHeight) {
-        if (this.imageProcessor == null) {
-            this.currentWidth = currentWidth;
-            this.currentHeight = currentHeight;
-
-            int maxDimension = Math.max(currentWidth, currentHeight);
-            this.imageProcessor = new ImageProcessor.Builder().
-                    add(new ResizeWithCropOrPadOp(maxDimension, maxDimension)).
-                    add(new ResizeOp(this.targetHeight, this.targetWidth, ResizeOp.ResizeMethod.NEAREST_NEIGHBOR)).
-                    add(new NormalizeOp(this.mean, this.std)).
-                    build();
-        } else {
-            if (this.currentWidth != currentWidth || this.currentHeight != currentHeight) {
-                this.imageProcessor = null;
-                this.imageProcessor = this.getImageProcessor(currentWidth, currentHeight);
+    //Writes targetHeight x targetWidth RGB floats at the output position and advances it
+    public void process(ImageFrame source, ByteBuffer output) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (output.remaining() < this.getOutputSize())
+            throw new IllegalArgumentException("Output buffer is too small, remaining: " + output.remaining());
+
+        SamplingTable samplingTable = this.getSamplingTable(width, height);
+        if (this.row.length < width)
+            this.row = new int[width];
+
+        float padding = (0 - this.mean) / this.std;
+        int loadedRow = -1;
+        for (int targetRow = 0; targetRow < this.targetHeight; targetRow++) {
+            int sourceRow = samplingTable.rows[targetRow];
+            if (sourceRow < 0) {
+                for (int column = 0; column < this.targetWidth * NUM_CHANNELS; column++)
+                    output.putFloat(padding);
+                continue;
+            }
+            //Padding columns come back black, which normalizes to the padding value
+            if (sourceRow != loadedRow) {
+                source.getPixels(sourceRow, samplingTable.columns, this.targetWidth, this.pixels, this.row);
+                loadedRow = sourceRow;
             }
+            for (int column = 0; column < this.targetWidth; column++) {
+                int pixel = this.pixels[column];
+                output.putFloat((((pixel >> 16) & 0xFF) - this.mean) / this.std);
+                output.putFloat((((pixel >> 8) & 0xFF) - this.mean) / this.std);
+                output.putFloat(((pixel & 0xFF) - this.mean) / this.std);
+            }
+        }
+    }
+
+    private SamplingTable getSamplingTable(int width, int height) {
+        Long key = ((long) width << 32) | (height & 0xFFFFFFFFL);
+        SamplingTable samplingTable = this.samplingTables.get(key);
+        if (samplingTable == null) {
+            int maxDimension = Math.max(width, height);
+            samplingTable = new SamplingTable(
+                    createIndexTable(width, maxDimension, this.targetWidth),
+                    createIndexTable(height, maxDimension, this.targetHeight));
+            this.samplingTables.put(key, samplingTable);
+        }
+        return samplingTable;
+    }
+
+    //Pads the source centered to paddedSize like ResizeWithCropOrPadOp, then samples pixel centers like an unfiltered scale
+    private static int[] createIndexTable(int sourceSize, int paddedSize, int targetSize) {
+        int offset = (paddedSize - sourceSize) / 2;
+        int[] indices = new int[targetSize];
+        for (int target = 0; target < targetSize; target++) {
+            int padded = Math.min((int) ((target + 0.5f) * paddedSize / targetSize), paddedSize - 1);
+            int source = padded - offset;
+            indices[target] = source >= 0 && source < sourceSize ? source : -1;
+        }
+        return indices;
+    }
+
+    private static final class SamplingTable {
+        private final int[] columns;
+        private final int[] rows;
+
+        private SamplingTable(int[] columns, int[] rows) {
+            this.columns = columns;
+            this.rows = rows;
         }
-        return this.imageProcessor;
     }
 }
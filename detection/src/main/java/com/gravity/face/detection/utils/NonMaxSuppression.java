@@ -0,0 +1,22 @@
+package com.gravity.face.detection.utils;
+
+import com.gravity.face.detection.models.TensorToFacesOptions;
+
+public interface NonMaxSuppression {
+
+    //Suppresses candidates, given as indices into input sorted by descending score, and writes survivors to output.
+    //Candidates may be reordered. Returns the number of faces written to output.
+    int process(FaceBuffer input, int[] candidates, int numCandidates, float iouThreshold, FaceBuffer output);
+
+    static NonMaxSuppression create(TensorToFacesOptions.NmsStrategy strategy) {
+        switch (strategy) {
+            case HARD:
+                return new HardNonMaxSuppression();
+            case WEIGHTED_GRID:
+                return new GridNonMaxSuppression();
+            case WEIGHTED:
+            default:
+                return new WeightedNonMaxSuppression();
+        }
+    }
+}
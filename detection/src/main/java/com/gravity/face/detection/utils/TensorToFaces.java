@@ -7,21 +7,48 @@ import android.util.Size;
 
 import com.gravity.face.detection.models.Anchor;
 import com.gravity.face.detection.models.Face;
+import com.gravity.face.detection.models.FaceDetectionResult;
 import com.gravity.face.detection.models.TensorToFacesOptions;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public final class TensorToFaces {
 
+    //Flat decode buffer indexed by anchor, and suppression output buffer
+    private FaceBuffer decodedFaces;
+    private FaceBuffer outputFaces;
+    private int[] candidates;
+    private int[] outputOrder;
+    //Flattened array outputs, so both output layouts share the flat decoder
+    private FloatBuffer flatScores;
+    private FloatBuffer flatBoxes;
+    //Letterbox projection as offsetX, multiplyX, offsetY, multiplyY
+    private final float[] projection = new float[4];
+    //Suppression engine of the last used strategy
+    private TensorToFacesOptions.NmsStrategy nmsStrategy;
+    private NonMaxSuppression nonMaxSuppression;
+
     public List<Face> process(Size imageSize, TensorToFacesOptions options, float[][][] rawScores, float[][][] rawBoxes, List<Anchor> anchors) {
+        return this.process(imageSize, options, rawScores, rawBoxes, AnchorGenerator.pack(anchors));
+    }
+
+    public List<Face> process(Size imageSize, TensorToFacesOptions options, float[][][] rawScores, float[][][] rawBoxes, float[] anchors) {
         if (rawBoxes.length != 1 || rawBoxes[0].length != options.getNumBoxes() || rawBoxes[0][0].length != options.getNumCoordinates())
             throw new IllegalArgumentException("RawBoxes dimensions is not correct");
         if (rawScores.length != 1 || rawScores[0].length != options.getNumBoxes() || rawScores[0][0].length != options.getNumClasses())
             throw new IllegalArgumentException("RawScores dimensions is not correct");
         if (options.getMaxNumberOfFaces() == 0 || options.getMaxNumberOfFaces() < -1)
             throw new IllegalArgumentException("MaxNumberOfFaces must be greater than 0 or -1");
+        if (anchors.length != options.getNumBoxes() * AnchorGenerator.ANCHOR_SIZE)
+            throw new IllegalArgumentException("Anchors size is not correct");
+
+        if (options.getDecoderMode() == TensorToFacesOptions.DecoderMode.FLAT) {
+            this.flatten(options, rawScores[0], rawBoxes[0]);
+            return this.processFlat(imageSize, options, this.flatScores, 0, this.flatBoxes, 0, anchors);
+        }
 
         List<Float> detectionScores = new ArrayList<>(options.getNumBoxes());
 
@@ -48,7 +75,274 @@ public final class TensorToFaces {
         return faces;
     }
 
-    private List<Face> convertToFaces(TensorToFacesOptions options, float[][][] rawBoxes, List<Float> detectionScores, List<Anchor> anchors) {
+    //Decodes numBoxes x numClasses scores and numBoxes x numCoordinates boxes read from the buffer positions,
+    //which are left unchanged so batch outputs are decoded by positioning the buffers at each slice
+    public List<Face> process(Size imageSize, TensorToFacesOptions options, FloatBuffer rawScores, FloatBuffer rawBoxes, float[] anchors) {
+        this.checkBuffers(options, rawScores, rawBoxes, anchors);
+
+        if (options.getDecoderMode() == TensorToFacesOptions.DecoderMode.FLAT)
+            return this.processFlat(imageSize, options, rawScores, rawScores.position(), rawBoxes, rawBoxes.position(), anchors);
+
+        //The object decoder works on arrays
+        float[][][] scores = new float[1][options.getNumBoxes()][options.getNumClasses()];
+        float[][][] boxes = new float[1][options.getNumBoxes()][options.getNumCoordinates()];
+        for (int i = 0; i < options.getNumBoxes(); i++) {
+            for (int c = 0; c < options.getNumClasses(); c++)
+                scores[0][i][c] = rawScores.get(rawScores.position() + i * options.getNumClasses() + c);
+            for (int c = 0; c < options.getNumCoordinates(); c++)
+                boxes[0][i][c] = rawBoxes.get(rawBoxes.position() + i * options.getNumCoordinates() + c);
+        }
+        return this.process(imageSize, options, scores, boxes, anchors);
+    }
+
+    //Adds the faces to result, filling the Face objects it kept from earlier frames instead of allocating them
+    public void process(Size imageSize, TensorToFacesOptions options, FloatBuffer rawScores, FloatBuffer rawBoxes, float[] anchors,
+                        FaceDetectionResult result) {
+        this.checkBuffers(options, rawScores, rawBoxes, anchors);
+
+        if (options.getDecoderMode() != TensorToFacesOptions.DecoderMode.FLAT) {
+            result.getFaces().addAll(this.process(imageSize, options, rawScores, rawBoxes, anchors));
+            return;
+        }
+
+        int numOutputs = this.decodeFlat(imageSize, options, rawScores, rawScores.position(), rawBoxes, rawBoxes.position(), anchors);
+        for (int i = 0; i < numOutputs; i++)
+            result.getFaces().add(this.materializeFace(options, this.outputOrder[i], result.obtainFace(i, options.getNumKeyPoints())));
+    }
+
+    private void checkBuffers(TensorToFacesOptions options, FloatBuffer rawScores, FloatBuffer rawBoxes, float[] anchors) {
+        if (rawBoxes.remaining() < options.getNumBoxes() * options.getNumCoordinates())
+            throw new IllegalArgumentException("RawBoxes size is not correct");
+        if (rawScores.remaining() < options.getNumBoxes() * options.getNumClasses())
+            throw new IllegalArgumentException("RawScores size is not correct");
+        if (options.getMaxNumberOfFaces() == 0 || options.getMaxNumberOfFaces() < -1)
+            throw new IllegalArgumentException("MaxNumberOfFaces must be greater than 0 or -1");
+        if (anchors.length != options.getNumBoxes() * AnchorGenerator.ANCHOR_SIZE)
+            throw new IllegalArgumentException("Anchors size is not correct");
+    }
+
+    private List<Face> processFlat(Size imageSize, TensorToFacesOptions options, FloatBuffer rawScores, int scoreOffset,
+                                   FloatBuffer rawBoxes, int boxOffset, float[] anchors) {
+        int numOutputs = this.decodeFlat(imageSize, options, rawScores, scoreOffset, rawBoxes, boxOffset, anchors);
+        List<Face> faces = new ArrayList<>(numOutputs);
+        for (int i = 0; i < numOutputs; i++)
+            faces.add(this.materializeFace(options, this.outputOrder[i], new Face(options.getNumKeyPoints())));
+        return faces;
+    }
+
+    //Leaves the faces in outputFaces, in the order of outputOrder, and returns their number
+    private int decodeFlat(Size imageSize, TensorToFacesOptions options, FloatBuffer rawScores, int scoreOffset,
+                           FloatBuffer rawBoxes, int boxOffset, float[] anchors) {
+        this.ensureCapacity(options);
+        this.updateProjection(imageSize);
+
+        int maxCandidates = options.getMaxCandidates();
+        float minScoreLogitThreshold = options.getMinScoreLogitThreshold();
+        int numClasses = options.getNumClasses();
+        int numCandidates = 0;
+        for (int i = 0; i < options.getNumBoxes(); i++) {
+            float rawScore = rawScores.get(scoreOffset + i * numClasses);
+            if (rawScore < minScoreLogitThreshold)
+                continue;
+            float score = this.calculateScore(options, rawScore);
+            if (score < options.getMinScoreThreshold())
+                continue;
+            this.decodedFaces.getScores()[i] = score;
+            numCandidates = this.offerCandidate(i, numCandidates, maxCandidates);
+        }
+
+        this.sortCandidates(numCandidates);
+        for (int i = 0; i < numCandidates; i++)
+            this.decodeBox(rawBoxes, boxOffset + this.candidates[i] * options.getNumCoordinates(), this.candidates[i], anchors, options);
+        int numOutputs = this.getNonMaxSuppression(options).process(this.decodedFaces, this.candidates, numCandidates,
+                options.getIouThreshold(), this.outputFaces);
+
+        for (int i = 0; i < numOutputs; i++)
+            this.outputOrder[i] = i;
+        if (options.getMaxNumberOfFaces() != -1) {
+            this.sortByScore(this.outputOrder, numOutputs, this.outputFaces.getScores());
+            numOutputs = Math.min(numOutputs, options.getMaxNumberOfFaces());
+        }
+        return numOutputs;
+    }
+
+    //Keeps the best maxCandidates boxes in a min heap rooted at the weakest candidate
+    private int offerCandidate(int index, int numCandidates, int maxCandidates) {
+        if (numCandidates < maxCandidates) {
+            this.candidates[numCandidates] = index;
+            this.siftUp(numCandidates);
+            return numCandidates + 1;
+        }
+        if (maxCandidates > 0 && this.isWeaker(this.candidates[0], index)) {
+            this.candidates[0] = index;
+            this.siftDown(0, numCandidates);
+        }
+        return numCandidates;
+    }
+
+    //Heap sort in place, leaving candidates ordered from strongest to weakest
+    private void sortCandidates(int numCandidates) {
+        for (int end = numCandidates - 1; end > 0; end--) {
+            int weakest = this.candidates[0];
+            this.candidates[0] = this.candidates[end];
+            this.candidates[end] = weakest;
+            this.siftDown(0, end);
+        }
+    }
+
+    private void siftUp(int position) {
+        int index = this.candidates[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!this.isWeaker(index, this.candidates[parent]))
+                break;
+            this.candidates[position] = this.candidates[parent];
+            position = parent;
+        }
+        this.candidates[position] = index;
+    }
+
+    private void siftDown(int position, int size) {
+        int index = this.candidates[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && this.isWeaker(this.candidates[child + 1], this.candidates[child]))
+                child++;
+            if (!this.isWeaker(this.candidates[child], index))
+                break;
+            this.candidates[position] = this.candidates[child];
+            position = child;
+        }
+        this.candidates[position] = index;
+    }
+
+    //Lower score is weaker, equal scores order by anchor index like the stable sort of the object path
+    private boolean isWeaker(int index1, int index2) {
+        float score1 = this.decodedFaces.getScores()[index1];
+        float score2 = this.decodedFaces.getScores()[index2];
+        return score1 < score2 || (score1 == score2 && index1 > index2);
+    }
+
+    private void flatten(TensorToFacesOptions options, float[][] rawScores, float[][] rawBoxes) {
+        int numScores = options.getNumBoxes() * options.getNumClasses();
+        int numBoxValues = options.getNumBoxes() * options.getNumCoordinates();
+        if (this.flatScores == null || this.flatScores.capacity() != numScores)
+            this.flatScores = FloatBuffer.allocate(numScores);
+        if (this.flatBoxes == null || this.flatBoxes.capacity() != numBoxValues)
+            this.flatBoxes = FloatBuffer.allocate(numBoxValues);
+        for (int i = 0; i < options.getNumBoxes(); i++) {
+            System.arraycopy(rawScores[i], 0, this.flatScores.array(), i * options.getNumClasses(), options.getNumClasses());
+            System.arraycopy(rawBoxes[i], 0, this.flatBoxes.array(), i * options.getNumCoordinates(), options.getNumCoordinates());
+        }
+    }
+
+    private void ensureCapacity(TensorToFacesOptions options) {
+        int numBoxes = options.getNumBoxes();
+        if (this.decodedFaces != null && this.decodedFaces.getCapacity() == numBoxes && this.decodedFaces.getNumKeyPoints() == options.getNumKeyPoints())
+            return;
+
+        this.decodedFaces = new FaceBuffer(numBoxes, options.getNumKeyPoints());
+        this.outputFaces = new FaceBuffer(numBoxes, options.getNumKeyPoints());
+        this.candidates = new int[numBoxes];
+        this.outputOrder = new int[numBoxes];
+    }
+
+    private NonMaxSuppression getNonMaxSuppression(TensorToFacesOptions options) {
+        if (this.nonMaxSuppression == null || this.nmsStrategy != options.getNmsStrategy()) {
+            this.nmsStrategy = options.getNmsStrategy();
+            this.nonMaxSuppression = NonMaxSuppression.create(this.nmsStrategy);
+        }
+        return this.nonMaxSuppression;
+    }
+
+    private float calculateScore(TensorToFacesOptions options, float score) {
+        if (options.getScoreClippingThreshold() <= 0)
+            return Float.MIN_VALUE;
+        if (score < -options.getScoreClippingThreshold())
+            score = (float) -options.getScoreClippingThreshold();
+        if (score > options.getScoreClippingThreshold())
+            score = (float) options.getScoreClippingThreshold();
+        return 1.0f / (1.0f + (float) Math.exp(-score));
+    }
+
+    private void updateProjection(Size imageSize) {
+        this.projection[0] = 0.0f;
+        this.projection[1] = 1.0f;
+        this.projection[2] = 0.0f;
+        this.projection[3] = 1.0f;
+        if (imageSize.getWidth() < imageSize.getHeight()) {
+            this.projection[0] = (1.0f - (float) imageSize.getWidth() / imageSize.getHeight()) / 2.0f;
+            this.projection[1] = (float) imageSize.getHeight() / imageSize.getWidth();
+        } else if (imageSize.getWidth() > imageSize.getHeight()) {
+            this.projection[2] = (1.0f - (float) imageSize.getHeight() / imageSize.getWidth()) / 2.0f;
+            this.projection[3] = (float) imageSize.getWidth() / imageSize.getHeight();
+        }
+    }
+
+    //Raw box values of anchor i start at offset
+    private void decodeBox(FloatBuffer rawBoxes, int offset, int i, float[] anchors, TensorToFacesOptions options) {
+        int anchorOffset = i * AnchorGenerator.ANCHOR_SIZE;
+        float anchorXCenter = anchors[anchorOffset];
+        float anchorYCenter = anchors[anchorOffset + 1];
+        float anchorWidth = anchors[anchorOffset + 2];
+        float anchorHeight = anchors[anchorOffset + 3];
+
+        float xCenter = rawBoxes.get(offset) / options.getXScale() * anchorWidth + anchorXCenter;
+        float yCenter = rawBoxes.get(offset + 1) / options.getYScale() * anchorHeight + anchorYCenter;
+        float width = rawBoxes.get(offset + 2) / options.getWidthScale() * anchorWidth;
+        float height = rawBoxes.get(offset + 3) / options.getHeightScale() * anchorHeight;
+
+        float[] boxes = this.decodedFaces.getBoxes();
+        float[] keyPoints = this.decodedFaces.getKeyPoints();
+        int boxOffset = i * FaceBuffer.BOX_SIZE;
+        boxes[boxOffset] = (xCenter - width / 2 - this.projection[0]) * this.projection[1];
+        boxes[boxOffset + 1] = (yCenter - height / 2 - this.projection[2]) * this.projection[3];
+        boxes[boxOffset + 2] = (xCenter + width / 2 - this.projection[0]) * this.projection[1];
+        boxes[boxOffset + 3] = (yCenter + height / 2 - this.projection[2]) * this.projection[3];
+
+        int keyPointOffset = i * options.getNumKeyPoints() * 2;
+        for (int k = 0; k < options.getNumKeyPoints(); k++) {
+            int keyPoint = offset + options.getKeypointCoordinateOffset() + k * options.getNumValuesPerKeypoint();
+            float keyPointX = rawBoxes.get(keyPoint) / options.getXScale() * anchorWidth + anchorXCenter;
+            float keyPointY = rawBoxes.get(keyPoint + 1) / options.getYScale() * anchorHeight + anchorYCenter;
+            keyPoints[keyPointOffset + k * 2] = (keyPointX - this.projection[0]) * this.projection[1];
+            keyPoints[keyPointOffset + k * 2 + 1] = (keyPointY - this.projection[2]) * this.projection[3];
+        }
+    }
+
+    //Stable insertion sort of indices by descending score, matching Collections.sort on the object path
+    private void sortByScore(int[] indices, int length, float[] scores) {
+        for (int i = 1; i < length; i++) {
+            int index = indices[i];
+            float score = scores[index];
+            int j = i - 1;
+            while (j >= 0 && scores[indices[j]] < score) {
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            indices[j + 1] = index;
+        }
+    }
+
+    //Fills a face with numKeyPoints key points
+    private Face materializeFace(TensorToFacesOptions options, int output, Face face) {
+        float[] boxes = this.outputFaces.getBoxes();
+        float[] keyPoints = this.outputFaces.getKeyPoints();
+        int boxOffset = output * FaceBuffer.BOX_SIZE;
+        int keyPointOffset = output * options.getNumKeyPoints() * 2;
+        for (int k = 0; k < options.getNumKeyPoints(); k++) {
+            face.getRelativeKeyPoints().get(k).set(keyPoints[keyPointOffset + k * 2], keyPoints[keyPointOffset + k * 2 + 1]);
+        }
+        face.getRelativeCoordinate().set(boxes[boxOffset],
+                boxes[boxOffset + 1],
+                boxes[boxOffset + 2],
+                boxes[boxOffset + 3]);
+        face.setScore(this.outputFaces.getScores()[output]);
+        return face;
+    }
+
+    private List<Face> convertToFaces(TensorToFacesOptions options, float[][][] rawBoxes, List<Float> detectionScores, float[] anchors) {
         List<Face> outputFaces = new ArrayList<>();
         for (int i = 0; i < options.getNumBoxes(); i++) {
             if (detectionScores.get(i) < options.getMinScoreThreshold())
@@ -61,18 +355,24 @@ public final class TensorToFaces {
         return outputFaces;
     }
 
-    private float[] decodeBox(float[][] rawBoxes, int i, List<Anchor> anchors, TensorToFacesOptions options) {
+    private float[] decodeBox(float[][] rawBoxes, int i, float[] anchors, TensorToFacesOptions options) {
         float[] boxData = new float[options.getNumCoordinates()];
         float xCenter = rawBoxes[i][0];
         float yCenter = rawBoxes[i][1];
         float width = rawBoxes[i][2];
         float height = rawBoxes[i][3];
 
-        xCenter = xCenter / options.getXScale() * anchors.get(i).getWidth() + anchors.get(i).getXCenter();
-        yCenter = yCenter / options.getYScale() * anchors.get(i).getHeight() + anchors.get(i).getYCenter();
+        int anchorOffset = i * AnchorGenerator.ANCHOR_SIZE;
+        float anchorXCenter = anchors[anchorOffset];
+        float anchorYCenter = anchors[anchorOffset + 1];
+        float anchorWidth = anchors[anchorOffset + 2];
+        float anchorHeight = anchors[anchorOffset + 3];
+
+        xCenter = xCenter / options.getXScale() * anchorWidth + anchorXCenter;
+        yCenter = yCenter / options.getYScale() * anchorHeight + anchorYCenter;
 
-        height = height / options.getHeightScale() * anchors.get(i).getHeight();
-        width = width / options.getWidthScale() * anchors.get(i).getWidth();
+        height = height / options.getHeightScale() * anchorHeight;
+        width = width / options.getWidthScale() * anchorWidth;
 
         float yMin = yCenter - height / 2;
         float xMin = xCenter - width / 2;
@@ -89,8 +389,8 @@ public final class TensorToFaces {
                 int offset = options.getKeypointCoordinateOffset() + k * options.getNumValuesPerKeypoint();
                 float keyPointX = rawBoxes[i][offset];
                 float keyPointY = rawBoxes[i][offset + 1];
-                boxData[4 + k * options.getNumValuesPerKeypoint()] = keyPointX / options.getXScale() * anchors.get(i).getWidth() + anchors.get(i).getXCenter();
-                boxData[4 + k * options.getNumValuesPerKeypoint() + 1] = keyPointY / options.getYScale() * anchors.get(i).getHeight() + anchors.get(i).getYCenter();
+                boxData[4 + k * options.getNumValuesPerKeypoint()] = keyPointX / options.getXScale() * anchorWidth + anchorXCenter;
+                boxData[4 + k * options.getNumValuesPerKeypoint() + 1] = keyPointY / options.getYScale() * anchorHeight + anchorYCenter;
             }
         }
 
@@ -179,7 +479,8 @@ public final class TensorToFaces {
         return outputFaces;
     }
 
-    private float calculateOverlapSimilarity(RectF boundingBox1, RectF boundingBox2) {
+    //Intersection over union of two boxes
+    public static float calculateOverlapSimilarity(RectF boundingBox1, RectF boundingBox2) {
         float left = Math.max(boundingBox1.left, boundingBox2.left);
         float top = Math.max(boundingBox1.top, boundingBox2.top);
         float right = Math.min(boundingBox1.right, boundingBox2.right);
@@ -190,11 +491,11 @@ public final class TensorToFaces {
 
         float intersectionArea = height * width;
 
-        float unionArea = this.area(boundingBox1) + this.area(boundingBox2) - intersectionArea;
+        float unionArea = area(boundingBox1) + area(boundingBox2) - intersectionArea;
         return intersectionArea / unionArea;
     }
 
-    private float area(RectF boundingBox) {
+    private static float area(RectF boundingBox) {
         return (boundingBox.right - boundingBox.left) * (boundingBox.bottom - boundingBox.top);
     }
 
@@ -0,0 +1,47 @@
+package com.gravity.face.detection.utils;
+
+//Score weighted averaging of clustered faces, the output score slot holds the running total score
+final class WeightedBlend {
+
+    private WeightedBlend() {
+    }
+
+    static void clear(FaceBuffer output, int index) {
+        int boxOffset = index * FaceBuffer.BOX_SIZE;
+        int keyPointsSize = output.getKeyPointsSize();
+        int keyPointOffset = index * keyPointsSize;
+        output.getScores()[index] = 0.0f;
+        for (int k = 0; k < FaceBuffer.BOX_SIZE; k++)
+            output.getBoxes()[boxOffset + k] = 0.0f;
+        for (int k = 0; k < keyPointsSize; k++)
+            output.getKeyPoints()[keyPointOffset + k] = 0.0f;
+    }
+
+    static void accumulate(FaceBuffer input, int candidate, FaceBuffer output, int index) {
+        float score = input.getScores()[candidate];
+        int keyPointsSize = output.getKeyPointsSize();
+        int inputBoxOffset = candidate * FaceBuffer.BOX_SIZE;
+        int inputKeyPointOffset = candidate * keyPointsSize;
+        int boxOffset = index * FaceBuffer.BOX_SIZE;
+        int keyPointOffset = index * keyPointsSize;
+
+        output.getScores()[index] += score;
+        for (int k = 0; k < FaceBuffer.BOX_SIZE; k++)
+            output.getBoxes()[boxOffset + k] += input.getBoxes()[inputBoxOffset + k] * score;
+        for (int k = 0; k < keyPointsSize; k++)
+            output.getKeyPoints()[keyPointOffset + k] += input.getKeyPoints()[inputKeyPointOffset + k] * score;
+    }
+
+    static void normalize(FaceBuffer output, int index, int numClustered) {
+        float totalScore = output.getScores()[index];
+        int boxOffset = index * FaceBuffer.BOX_SIZE;
+        int keyPointsSize = output.getKeyPointsSize();
+        int keyPointOffset = index * keyPointsSize;
+
+        for (int k = 0; k < FaceBuffer.BOX_SIZE; k++)
+            output.getBoxes()[boxOffset + k] /= totalScore;
+        for (int k = 0; k < keyPointsSize; k++)
+            output.getKeyPoints()[keyPointOffset + k] /= totalScore;
+        output.getScores()[index] = totalScore / numClustered;
+    }
+}
@@ -0,0 +1,39 @@
+package com.gravity.face.detection.utils;
+
+public final class WeightedNonMaxSuppression implements NonMaxSuppression {
+
+    @Override
+    public int process(FaceBuffer input, int[] candidates, int numCandidates, float iouThreshold, FaceBuffer output) {
+        int numRemained = numCandidates;
+        int numOutputs = 0;
+
+        while (numRemained > 0) {
+            int detection = candidates[0];
+            WeightedBlend.clear(output, numOutputs);
+
+            int numClustered = 0;
+            int numKept = 0;
+            for (int j = 0; j < numRemained; j++) {
+                int candidate = candidates[j];
+                if (input.calculateOverlapSimilarity(candidate, detection) > iouThreshold) {
+                    WeightedBlend.accumulate(input, candidate, output, numOutputs);
+                    numClustered++;
+                } else {
+                    candidates[numKept++] = candidate;
+                }
+            }
+
+            if (numClustered > 0) {
+                WeightedBlend.normalize(output, numOutputs, numClustered);
+            } else {
+                input.copy(detection, output, numOutputs);
+            }
+            numOutputs++;
+
+            if (numKept == numRemained)
+                break;
+            numRemained = numKept;
+        }
+        return numOutputs;
+    }
+}
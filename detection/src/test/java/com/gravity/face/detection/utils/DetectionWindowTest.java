@@ -0,0 +1,141 @@
+package com.gravity.face.detection.utils;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import com.gravity.face.detection.models.Face;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class DetectionWindowTest {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final float SCALE = 2.5f;
+    private static final int FULL_FRAME_INTERVAL = 4;
+    private static final float TOLERANCE = 1e-5f;
+
+    private final DetectionWindow detectionWindow = new DetectionWindow(SCALE, FULL_FRAME_INTERVAL);
+
+    @Test
+    public void wholeFrameUntilFacesAreKnown() {
+        assertNull(this.detectionWindow.getWindow(WIDTH, HEIGHT));
+
+        this.detectionWindow.update(Collections.emptyList(), false);
+        assertNull(this.detectionWindow.getWindow(WIDTH, HEIGHT));
+    }
+
+    //A square of the scaled larger face side around the faces, in whole pixels
+    @Test
+    public void windowAroundFaces() {
+        this.detectionWindow.update(Collections.singletonList(face(0.5f, 0.5f, 0.55f, 0.6f)), false);
+
+        RectF window = this.detectionWindow.getWindow(WIDTH, HEIGHT);
+        assertNotNull(window);
+        assertRect(872, 458, 1143, 729, window);
+    }
+
+    @Test
+    public void windowCoversEveryFace() {
+        this.detectionWindow.update(Arrays.asList(face(0.25f, 0.25f, 0.3125f, 0.375f), face(0.3125f, 0.3125f, 0.375f, 0.4375f)), false);
+
+        RectF window = this.detectionWindow.getWindow(WIDTH, HEIGHT);
+        assertNotNull(window);
+        //The union is 240 pixels across and 202.5 down, its larger side scaled to 600
+        assertRect(300, 71, 900, 672, window);
+    }
+
+    @Test
+    public void windowIsClippedToTheFrame() {
+        this.detectionWindow.update(Collections.singletonList(face(0.0f, 0.0f, 0.1f, 0.1f)), false);
+
+        RectF window = this.detectionWindow.getWindow(WIDTH, HEIGHT);
+        assertNotNull(window);
+        assertEquals(0, window.left, TOLERANCE);
+        assertEquals(0, window.top, TOLERANCE);
+    }
+
+    @Test
+    public void faceFillingTheFrameSearchesTheWholeFrame() {
+        this.detectionWindow.update(Collections.singletonList(face(0.2f, 0.2f, 0.8f, 0.8f)), false);
+
+        assertNull(this.detectionWindow.getWindow(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void wholeFrameEveryFullFrameInterval() {
+        List<Face> faces = Collections.singletonList(face(0.5f, 0.5f, 0.55f, 0.6f));
+        this.detectionWindow.update(faces, false);
+        StringBuilder windows = new StringBuilder();
+        for (int i = 0; i < 2 * FULL_FRAME_INTERVAL; i++) {
+            RectF window = this.detectionWindow.getWindow(WIDTH, HEIGHT);
+            windows.append(window != null ? 'W' : 'F');
+            this.detectionWindow.update(faces, window != null);
+        }
+
+        assertEquals("WWWFWWWF", windows.toString());
+    }
+
+    @Test
+    public void lostFaceSearchesTheWholeFrame() {
+        this.detectionWindow.update(Arrays.asList(face(0.4f, 0.4f, 0.45f, 0.5f), face(0.55f, 0.45f, 0.6f, 0.55f)), false);
+        assertNotNull(this.detectionWindow.getWindow(WIDTH, HEIGHT));
+
+        this.detectionWindow.update(Collections.singletonList(face(0.4f, 0.4f, 0.45f, 0.5f)), true);
+        assertNull(this.detectionWindow.getWindow(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void toFrameMapsWindowCoordinates() {
+        RectF window = new RectF(480, 270, 960, 810);
+        Face face = face(0.25f, 0.5f, 0.75f, 1.0f);
+        face.getRelativeKeyPoints().get(0).set(0.5f, 0.5f);
+        List<Face> faces = Collections.singletonList(face);
+
+        DetectionWindow.toFrame(faces, window, WIDTH, HEIGHT);
+
+        RectF box = face.getRelativeCoordinate();
+        assertEquals(600f / WIDTH, box.left, TOLERANCE);
+        assertEquals(540f / HEIGHT, box.top, TOLERANCE);
+        assertEquals(840f / WIDTH, box.right, TOLERANCE);
+        assertEquals(810f / HEIGHT, box.bottom, TOLERANCE);
+        PointF keyPoint = face.getRelativeKeyPoints().get(0);
+        assertEquals(720f / WIDTH, keyPoint.x, TOLERANCE);
+        assertEquals(540f / HEIGHT, keyPoint.y, TOLERANCE);
+    }
+
+    @Test
+    public void toFrameOfWholeFrameKeepsCoordinates() {
+        Face face = face(0.1f, 0.2f, 0.3f, 0.4f);
+
+        DetectionWindow.toFrame(Collections.singletonList(face), new RectF(0, 0, WIDTH, HEIGHT), WIDTH, HEIGHT);
+
+        assertRect(0.1f, 0.2f, 0.3f, 0.4f, face.getRelativeCoordinate());
+    }
+
+    private static void assertRect(float left, float top, float right, float bottom, RectF rect) {
+        assertEquals(left, rect.left, TOLERANCE);
+        assertEquals(top, rect.top, TOLERANCE);
+        assertEquals(right, rect.right, TOLERANCE);
+        assertEquals(bottom, rect.bottom, TOLERANCE);
+    }
+
+    private static Face face(float left, float top, float right, float bottom) {
+        List<PointF> keyPoints = new ArrayList<>();
+        for (int i = 0; i < Face.Landmarks.values().length; i++)
+            keyPoints.add(new PointF());
+        return new Face(1.0f, new RectF(left, top, right, bottom), keyPoints);
+    }
+}
@@ -0,0 +1,161 @@
+package com.gravity.face.detection.utils;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import com.gravity.face.detection.models.Face;
+import com.gravity.face.detection.models.FaceDetectionResult;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FacePredictorTest {
+
+    private static final int MAX_KEYFRAME_INTERVAL = 4;
+    private static final float MAX_PREDICTION_ERROR = 0.1f;
+    private static final float SIZE = 0.2f;
+    //Displacement per frame of the moving face
+    private static final float SPEED = 0.002f;
+    private static final float TOLERANCE = 1e-3f;
+
+    private final FacePredictor facePredictor = new FacePredictor(MAX_KEYFRAME_INTERVAL, MAX_PREDICTION_ERROR);
+
+    @Test
+    public void detectsUntilTheFirstMeasurement() {
+        assertFalse(this.facePredictor.predict(0, new FaceDetectionResult()));
+        assertEquals(1, this.facePredictor.getKeyframeInterval());
+    }
+
+    @Test
+    public void constantVelocityGrowsIntervalToMax() {
+        int detections = this.run(0, 60);
+
+        assertEquals(MAX_KEYFRAME_INTERVAL, this.facePredictor.getKeyframeInterval());
+        //Once the interval is at its maximum only every fourth frame runs the detector
+        assertTrue("Detections: " + detections, detections < 30);
+    }
+
+    @Test
+    public void predictionsFollowTheFace() {
+        this.run(0, 60);
+
+        for (long frameId = 60; frameId < 120; frameId++) {
+            FaceDetectionResult result = new FaceDetectionResult();
+            if (!this.facePredictor.predict(frameId, result)) {
+                this.facePredictor.measure(frameId, Collections.singletonList(movingFace(frameId)));
+                continue;
+            }
+            assertEquals(1, result.getFaces().size());
+            Face expected = movingFace(frameId);
+            Face predicted = result.getFaces().get(0);
+            assertEquals(expected.getRelativeCoordinate().left, predicted.getRelativeCoordinate().left, TOLERANCE);
+            assertEquals(expected.getRelativeCoordinate().top, predicted.getRelativeCoordinate().top, TOLERANCE);
+            assertEquals(expected.getRelativeKeyPoints().get(0).x, predicted.getRelativeKeyPoints().get(0).x, TOLERANCE);
+            assertEquals(expected.getScore(), predicted.getScore(), 0.0f);
+        }
+    }
+
+    @Test
+    public void appearingFaceHalvesInterval() {
+        long frameId = this.runToMax();
+
+        this.facePredictor.measure(frameId, Arrays.asList(movingFace(frameId), face(0.7f, 0.7f)));
+        assertEquals(MAX_KEYFRAME_INTERVAL / 2, this.facePredictor.getKeyframeInterval());
+    }
+
+    @Test
+    public void disappearingFaceHalvesInterval() {
+        long frameId = this.runToMax();
+        this.facePredictor.measure(frameId, Arrays.asList(movingFace(frameId), face(0.7f, 0.7f)));
+        int interval = this.facePredictor.getKeyframeInterval();
+
+        frameId += interval;
+        this.facePredictor.measure(frameId, Collections.singletonList(movingFace(frameId)));
+        assertEquals(Math.max(1, interval / 2), this.facePredictor.getKeyframeInterval());
+    }
+
+    @Test
+    public void noFacesDetectsEveryFrame() {
+        long frameId = this.runToMax();
+
+        this.facePredictor.measure(frameId, Collections.emptyList());
+        assertEquals(1, this.facePredictor.getKeyframeInterval());
+        for (int i = 1; i <= 2 * MAX_KEYFRAME_INTERVAL; i++) {
+            assertFalse(this.facePredictor.predict(frameId + i, new FaceDetectionResult()));
+            this.facePredictor.measure(frameId + i, Collections.emptyList());
+            assertEquals(1, this.facePredictor.getKeyframeInterval());
+        }
+    }
+
+    @Test
+    public void faceJumpingAwayHalvesInterval() {
+        long frameId = this.runToMax();
+
+        //Still overlapping the prediction but far off it
+        Face jumped = movingFace(frameId);
+        jumped.getRelativeCoordinate().offset(SIZE / 4, 0);
+        this.facePredictor.measure(frameId, Collections.singletonList(jumped));
+        assertEquals(MAX_KEYFRAME_INTERVAL / 2, this.facePredictor.getKeyframeInterval());
+    }
+
+    @Test
+    public void olderMeasurementIsIgnored() {
+        long frameId = this.runToMax();
+        this.facePredictor.measure(frameId, Collections.singletonList(movingFace(frameId)));
+        int interval = this.facePredictor.getKeyframeInterval();
+
+        this.facePredictor.measure(frameId - 1, Collections.singletonList(face(0.7f, 0.7f)));
+
+        assertEquals(interval, this.facePredictor.getKeyframeInterval());
+        FaceDetectionResult result = new FaceDetectionResult();
+        assertTrue(this.facePredictor.predict(frameId + 1, result));
+        assertEquals(1, result.getFaces().size());
+        assertEquals(movingFace(frameId + 1).getRelativeCoordinate().left, result.getFaces().get(0).getRelativeCoordinate().left, TOLERANCE);
+    }
+
+    //Detects the moving face whenever the predictor asks for it, returns the number of detections
+    private int run(long firstFrameId, long lastFrameId) {
+        int detections = 0;
+        for (long frameId = firstFrameId; frameId < lastFrameId; frameId++) {
+            if (this.facePredictor.predict(frameId, new FaceDetectionResult()))
+                continue;
+            this.facePredictor.measure(frameId, Collections.singletonList(movingFace(frameId)));
+            detections++;
+        }
+        return detections;
+    }
+
+    //Frame id of the next keyframe once the interval reached its maximum
+    private long runToMax() {
+        long frameId = 0;
+        while (this.facePredictor.getKeyframeInterval() < MAX_KEYFRAME_INTERVAL) {
+            this.run(frameId, frameId + 1);
+            frameId++;
+        }
+        while (this.facePredictor.predict(frameId, new FaceDetectionResult()))
+            frameId++;
+        return frameId;
+    }
+
+    private static Face movingFace(long frameId) {
+        return face(0.2f + SPEED * frameId, 0.3f + SPEED / 2 * frameId);
+    }
+
+    private static Face face(float left, float top) {
+        List<PointF> keyPoints = new ArrayList<>();
+        for (int i = 0; i < Face.Landmarks.values().length; i++)
+            keyPoints.add(new PointF(left + SIZE * (i + 1) / 8, top + SIZE / 2));
+        return new Face(0.9f, new RectF(left, top, left + SIZE, top + SIZE), keyPoints);
+    }
+}
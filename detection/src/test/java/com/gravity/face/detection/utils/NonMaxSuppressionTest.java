@@ -0,0 +1,136 @@
+package com.gravity.face.detection.utils;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+import android.util.Size;
+
+import com.gravity.face.detection.models.AnchorOptions;
+import com.gravity.face.detection.models.Face;
+import com.gravity.face.detection.models.TensorToFacesOptions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//The flat suppression engines against the object decoder on the same model output
+@RunWith(RobolectricTestRunner.class)
+public class NonMaxSuppressionTest {
+
+    private static final int NUM_BOXES = 896;
+    private static final int NUM_COORDINATES = 16;
+    private static final float INPUT_SIZE = 128.0f;
+    private static final float TOLERANCE = 1e-5f;
+    //Face centers and sizes relative to the model input, the last two overlap
+    private static final float[][] FACES = {
+            {0.2f, 0.25f, 0.15f},
+            {0.7f, 0.3f, 0.3f},
+            {0.3f, 0.75f, 0.1f},
+            {0.62f, 0.72f, 0.25f},
+            {0.75f, 0.8f, 0.25f}
+    };
+
+    private final Size imageSize = new Size(640, 480);
+    private float[] anchors;
+    private float[][][] rawScores;
+    private float[][][] rawBoxes;
+
+    @Before
+    public void setUp() {
+        this.anchors = AnchorCache.get(AnchorOptions.withDefaultValues());
+        this.rawScores = new float[1][NUM_BOXES][1];
+        this.rawBoxes = new float[1][NUM_BOXES][NUM_COORDINATES];
+
+        //Every anchor inside a face votes for it with a jittered box, the others stay under the threshold
+        Random random = new Random(42);
+        for (int i = 0; i < NUM_BOXES; i++)
+            this.rawScores[0][i][0] = (float) (random.nextGaussian() - 4);
+        for (float[] face : FACES) {
+            for (int i = 0; i < NUM_BOXES; i++) {
+                float anchorX = this.anchors[i * AnchorGenerator.ANCHOR_SIZE];
+                float anchorY = this.anchors[i * AnchorGenerator.ANCHOR_SIZE + 1];
+                if (Math.abs(anchorX - face[0]) > face[2] / 2 || Math.abs(anchorY - face[1]) > face[2] / 2)
+                    continue;
+                this.rawScores[0][i][0] = (float) (2 + random.nextGaussian());
+                this.rawBoxes[0][i][0] = (face[0] - anchorX) * INPUT_SIZE + (float) random.nextGaussian();
+                this.rawBoxes[0][i][1] = (face[1] - anchorY) * INPUT_SIZE + (float) random.nextGaussian();
+                this.rawBoxes[0][i][2] = face[2] * INPUT_SIZE * (1 + 0.05f * (float) random.nextGaussian());
+                this.rawBoxes[0][i][3] = face[2] * INPUT_SIZE * (1 + 0.05f * (float) random.nextGaussian());
+                for (int c = 4; c < NUM_COORDINATES; c++)
+                    this.rawBoxes[0][i][c] = (float) random.nextGaussian() * 5;
+            }
+        }
+    }
+
+    @Test
+    public void weightedMatchesObjectDecoder() {
+        for (int maxNumberOfFaces : new int[]{-1, 1, 3})
+            assertSameFaces(this.decodeObject(maxNumberOfFaces), this.decodeFlat(maxNumberOfFaces, TensorToFacesOptions.NmsStrategy.WEIGHTED));
+    }
+
+    @Test
+    public void weightedGridMatchesObjectDecoder() {
+        for (int maxNumberOfFaces : new int[]{-1, 1, 3})
+            assertSameFaces(this.decodeObject(maxNumberOfFaces), this.decodeFlat(maxNumberOfFaces, TensorToFacesOptions.NmsStrategy.WEIGHTED_GRID));
+    }
+
+    //Hard suppression keeps the best box instead of blending, it still finds the faces of the object decoder
+    @Test
+    public void hardFindsTheFacesOfObjectDecoder() {
+        List<Face> expected = this.decodeObject(-1);
+        List<Face> actual = this.decodeFlat(-1, TensorToFacesOptions.NmsStrategy.HARD);
+        assertEquals(expected.size(), actual.size());
+        for (Face expectedFace : expected) {
+            float bestOverlap = 0;
+            for (Face actualFace : actual)
+                bestOverlap = Math.max(bestOverlap, TensorToFaces.calculateOverlapSimilarity(expectedFace.getRelativeCoordinate(), actualFace.getRelativeCoordinate()));
+            assertTrue(bestOverlap > 0.5f);
+        }
+    }
+
+    @Test
+    public void objectDecoderFindsEveryFace() {
+        assertEquals(FACES.length, this.decodeObject(-1).size());
+    }
+
+    private List<Face> decodeObject(int maxNumberOfFaces) {
+        TensorToFacesOptions options = TensorToFacesOptions.withDefaultValues(0.5, maxNumberOfFaces,
+                TensorToFacesOptions.DecoderMode.OBJECT, -1, TensorToFacesOptions.NmsStrategy.WEIGHTED);
+        return new TensorToFaces().process(this.imageSize, options, this.rawScores, this.rawBoxes, this.anchors);
+    }
+
+    private List<Face> decodeFlat(int maxNumberOfFaces, TensorToFacesOptions.NmsStrategy nmsStrategy) {
+        TensorToFacesOptions options = TensorToFacesOptions.withDefaultValues(0.5, maxNumberOfFaces,
+                TensorToFacesOptions.DecoderMode.FLAT, -1, nmsStrategy);
+        return new TensorToFaces().process(this.imageSize, options, this.rawScores, this.rawBoxes, this.anchors);
+    }
+
+    private static void assertSameFaces(List<Face> expected, List<Face> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Face expectedFace = expected.get(i);
+            Face actualFace = actual.get(i);
+            assertEquals(expectedFace.getScore(), actualFace.getScore(), TOLERANCE);
+            assertSameBox(expectedFace.getRelativeCoordinate(), actualFace.getRelativeCoordinate());
+            for (int k = 0; k < expectedFace.getRelativeKeyPoints().size(); k++) {
+                PointF expectedKeyPoint = expectedFace.getRelativeKeyPoints().get(k);
+                PointF actualKeyPoint = actualFace.getRelativeKeyPoints().get(k);
+                assertEquals(expectedKeyPoint.x, actualKeyPoint.x, TOLERANCE);
+                assertEquals(expectedKeyPoint.y, actualKeyPoint.y, TOLERANCE);
+            }
+        }
+    }
+
+    private static void assertSameBox(RectF expected, RectF actual) {
+        assertEquals(expected.left, actual.left, TOLERANCE);
+        assertEquals(expected.top, actual.top, TOLERANCE);
+        assertEquals(expected.right, actual.right, TOLERANCE);
+        assertEquals(expected.bottom, actual.bottom, TOLERANCE);
+    }
+}
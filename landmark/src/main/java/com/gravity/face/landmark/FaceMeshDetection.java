@@ -6,8 +6,13 @@ import android.graphics.RectF;
 import android.util.Size;
 
 import com.gravity.face.core.ErrorListener;
+import com.gravity.face.core.FrameReleaseListener;
 import com.gravity.face.core.ResultListener;
+import com.gravity.face.core.ResultPool;
 import com.gravity.face.core.SolutionBase;
+import com.gravity.face.core.utils.FrameThumbnail;
+import com.gravity.face.core.utils.ImageFrame;
+import com.gravity.face.core.utils.LimitedSizeQueue;
 import com.gravity.face.detection.FaceDetection;
 import com.gravity.face.detection.models.Face;
 import com.gravity.face.detection.models.FaceDetectionOptions;
@@ -16,25 +21,34 @@ import com.gravity.face.landmark.models.FaceMesh;
 import com.gravity.face.landmark.models.FaceMeshOptions;
 import com.gravity.face.landmark.models.FaceMeshResult;
 import com.gravity.face.landmark.models.TensorToMeshOptions;
-import com.gravity.face.landmark.utils.CropOp;
+import com.gravity.face.landmark.utils.FaceTrackManager;
+import com.gravity.face.landmark.utils.LandmarkTracker;
 import com.gravity.face.landmark.utils.RectTransformation;
+import com.gravity.face.landmark.utils.RoiSampler;
 import com.gravity.face.landmark.utils.TensorToMesh;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
-import org.tensorflow.lite.DataType;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.image.ops.ResizeOp;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public final class FaceMeshDetection extends SolutionBase<Bitmap, FaceMeshResult> implements ResultListener<FaceDetectionResult>, ErrorListener {
+public final class FaceMeshDetection extends SolutionBase<FaceMeshDetection.FaceCrop, FaceMeshResult> implements ResultListener<FaceDetectionResult>, ErrorListener, Runnable {
 
     //Model name in assets folder
     private static final String MODEL_PATH = "face_landmark.tflite";
@@ -43,50 +57,171 @@ public final class FaceMeshDetection extends SolutionBase<Bitmap, FaceMeshResult
     private static final int IMAGE_HEIGHT = 192;
     private static final float IMAGE_MEAN = 0.0f;
     private static final float IMAGE_STD = 255.0f;
+    //Detections handed from the detection worker to the mesh worker, one being meshed while the next is detected
+    private static final int PIPELINE_DEPTH = 2;
     //FaceMesh Options
     private final FaceMeshOptions options;
     //Face Detection
     private final FaceDetection faceDetection;
-    //Image Processor
-    private final ImageProcessor resizeAndNormalizeProcessor;
-    //Model output
-    private final float[][][][] regressionOutput;
-    private final float[][][][] classificationOutput;
+    //Crop, resize and normalize samplers, one per interpreter
+    private final RoiSampler[] roiSamplers;
+    //Model output shapes, every interpreter allocates its own buffers
+    private final int[] regressionOutputShape;
+    private final int[] classificationOutputShape;
     //Encoding objects
     private final TensorToMeshOptions tensorToMeshOptions;
     private final TensorToMesh tensorToMesh;
+    //Input buffers and the input arrays wrapping them, one per interpreter
+    private final ByteBuffer[] inputBuffers;
+    private final Object[][] inputs;
+    //Helpers for multi face frames, null with a single interpreter
+    private final ExecutorService meshWorkers;
+    //Pipeline
+    private final LimitedSizeQueue<FaceDetectionResult> pendingDetections;
+    private final AtomicLong completedFrameCount;
+    private volatile long firstResultTime;
+    private volatile long lastResultTime;
+    //Null unless results are pooled
+    private final ResultPool<FaceMeshResult> resultPool;
+    //Null unless landmark tracking is enabled
+    private final LandmarkTracker landmarkTracker;
+    //Null unless face tracking is enabled
+    private final FaceTrackManager faceTrackManager;
+    //Copy of the meshes of the last processed frame, null unless the motion gate is enabled
+    private volatile LastMeshes lastMeshes;
 
     public FaceMeshDetection(@NonNull Context context, @NonNull FaceMeshOptions options) {
-        super(context);
+        this(context, options, command -> new Thread(command, "FaceMeshDetection").start());
+    }
+
+    //The executor runs the detection worker, the mesh worker of a pipelined detection gets its own thread
+    public FaceMeshDetection(@NonNull Context context, @NonNull FaceMeshOptions options, @NonNull Executor executor) {
+        super(context, Objects.requireNonNull(options).getNumInterpreters(), options.isShareInterpreters());
 
-        this.options = Objects.requireNonNull(options);
+        this.options = options;
+        //Detections dropped by close are owned by nobody else
+        this.pendingDetections = new LimitedSizeQueue<>(PIPELINE_DEPTH, FaceDetectionResult::release);
+        this.completedFrameCount = new AtomicLong();
 
         FaceDetectionOptions faceDetectionOptions = new FaceDetectionOptions.Builder().
                 setMaxNumberOfFaces(this.options.getMaxNumberOfFaces()).
-                setMinConfidence(this.options.getMinConfidence()).build();
-        this.faceDetection = new FaceDetection(context, faceDetectionOptions);
+                setMinConfidence(this.options.getMinConfidence()).
+                setBackpressurePolicy(this.options.getBackpressurePolicy()).
+                setQueueDepth(this.options.getQueueDepth()).
+                setMaxFrameAgeMillis(this.options.getMaxFrameAgeMillis()).
+                setNumInterpreters(this.options.getNumInterpreters()).
+                setShareInterpreters(this.options.isShareInterpreters()).
+                setPooledResults(this.options.isPooledResults()).
+                setResultLeakDetection(this.options.isResultLeakDetection()).
+                setInputBitmapMode(FaceDetectionOptions.InputBitmapMode.FULL).
+                setMaxRetainedBytes(this.options.getMaxRetainedBytes()).
+                setMaxFrameDifference(this.options.getMaxFrameDifference()).
+                setMaxReusedFrames(this.options.getMaxReusedFrames()).build();
+        this.faceDetection = new FaceDetection(context, faceDetectionOptions, executor);
         this.faceDetection.setErrorListener(this);
         this.faceDetection.setResultListener(this);
+        this.landmarkTracker = this.options.isLandmarkTracking() ?
+                new LandmarkTracker(this.options.getMaxNumberOfFaces(), this.options.getMinTrackingConfidence(), this.options.getMaxTrackedFrames()) : null;
+        this.faceDetection.setFaceTracker(this.landmarkTracker);
+        this.faceTrackManager = this.options.isFaceTracking() ?
+                new FaceTrackManager(this.options.getMaxMeshesPerFrame(), this.options.getMaxRefreshInterval()) : null;
 
-        this.resizeAndNormalizeProcessor = new ImageProcessor.Builder().
-                add(new ResizeOp(IMAGE_HEIGHT, IMAGE_WIDTH, ResizeOp.ResizeMethod.NEAREST_NEIGHBOR)).
-                add(new NormalizeOp(IMAGE_MEAN, IMAGE_STD)).
-                build();
-
-        int[] regressionOutputShape = super.getOutputTensorShape(0);
-        this.regressionOutput = new float[regressionOutputShape[0]][regressionOutputShape[1]][regressionOutputShape[2]][regressionOutputShape[3]];
+        this.roiSamplers = new RoiSampler[super.getNumInterpreters()];
+        for (int i = 0; i < this.roiSamplers.length; i++)
+            this.roiSamplers[i] = new RoiSampler(IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_MEAN, IMAGE_STD);
 
-        int[] classificationOutputShape = getOutputTensorShape(1);
-        this.classificationOutput = new float[classificationOutputShape[0]][classificationOutputShape[1]][classificationOutputShape[2]][classificationOutputShape[3]];
+        this.regressionOutputShape = super.getOutputTensorShape(0);
+        this.classificationOutputShape = super.getOutputTensorShape(1);
 
-        this.tensorToMeshOptions = TensorToMeshOptions.withDefaultValues();
+        this.tensorToMeshOptions = TensorToMeshOptions.withDefaultValues(this.options);
         this.tensorToMesh = new TensorToMesh();
+        this.inputBuffers = new ByteBuffer[super.getNumInterpreters()];
+        this.inputs = new Object[super.getNumInterpreters()][];
+        this.meshWorkers = super.getNumInterpreters() > 1 ?
+                Executors.newFixedThreadPool(super.getNumInterpreters() - 1, runnable -> {
+                    Thread thread = new Thread(runnable, "FaceMeshWorker");
+                    thread.setDaemon(true);
+                    return thread;
+                }) : null;
+
+        //Retains enough results for every frame in flight and a few held by the listener
+        this.resultPool = this.options.isPooledResults() ?
+                new ResultPool<>(PIPELINE_DEPTH + super.getNumInterpreters() + 2, FaceMeshResult::new,
+                        this.options.isResultLeakDetection() ? super::sendError : null) : null;
+
+        //Sharing the executor with the detection worker deadlocks a single thread executor once the pipeline is full
+        if (this.options.isPipelined()) {
+            Thread meshWorker = new Thread(this, "FaceMeshPipeline");
+            meshWorker.setDaemon(true);
+            meshWorker.start();
+        }
     }
 
     public void detect(@NonNull Bitmap bitmap) {
         this.faceDetection.detect(bitmap);
     }
 
+    //Frame buffers have to stay untouched until the frame release listener is called
+    public void detect(@NonNull ImageFrame imageFrame) {
+        this.faceDetection.detect(imageFrame);
+    }
+
+    //Runs detection and mesh on the calling thread, safe to call concurrently up to the number of interpreters.
+    //Returns null if face detection failed, the error is reported to the error listener.
+    @Nullable
+    public FaceMeshResult process(@NonNull Bitmap bitmap) {
+        FaceDetectionResult faceDetectionResult = this.faceDetection.process(bitmap);
+        if (faceDetectionResult == null)
+            return null;
+        return this.processFaces(faceDetectionResult);
+    }
+
+    //Camera frames are converted straight into the model inputs, landmarks are relative to the rotated frame
+    @Nullable
+    public FaceMeshResult process(@NonNull ImageFrame imageFrame) {
+        FaceDetectionResult faceDetectionResult = this.faceDetection.process(imageFrame);
+        if (faceDetectionResult == null)
+            return null;
+        return this.processFaces(faceDetectionResult);
+    }
+
+    //Frames are released once meshed, or with the result when it keeps the full input bitmap
+    public void setFrameReleaseListener(@Nullable FrameReleaseListener listener) {
+        this.faceDetection.setFrameReleaseListener(listener);
+    }
+
+    //Bytes of frames pending, in inference or attached to results that were not released yet
+    public long getRetainedBytes() {
+        return this.faceDetection.getRetainedBytes();
+    }
+
+    //Frames meshed without running the face detector
+    public long getTrackedFrameCount() {
+        return this.faceDetection.getTrackedFrameCount();
+    }
+
+    //Frames that reused the meshes of the last processed frame
+    public long getMotionGateHitCount() {
+        return this.faceDetection.getMotionGateHitCount();
+    }
+
+    public long getMotionGateMissCount() {
+        return this.faceDetection.getMotionGateMissCount();
+    }
+
+    public long getCompletedFrameCount() {
+        return this.completedFrameCount.get();
+    }
+
+    //Results per second between the first and the last delivered result, 0 until two results were delivered
+    public double getThroughput() {
+        long completedFrameCount = this.completedFrameCount.get();
+        long elapsed = this.lastResultTime - this.firstResultTime;
+        if (completedFrameCount < 2 || elapsed <= 0)
+            return 0;
+        return (completedFrameCount - 1) / (elapsed / 1e9);
+    }
+
     @Override
     public void onError(Exception exception) {
         super.sendError(exception);
@@ -94,47 +229,293 @@ public final class FaceMeshDetection extends SolutionBase<Bitmap, FaceMeshResult
 
     @Override
     public void run(FaceDetectionResult faceDetectionResult) {
-        FaceMeshResult result = new FaceMeshResult();
+        if (!this.options.isPipelined()) {
+            this.processAndPublish(faceDetectionResult);
+            return;
+        }
+        //Blocks the detection worker instead of dropping, the detection queue applies the backpressure policy
+        try {
+            if (!this.pendingDetections.put(faceDetectionResult))
+                faceDetectionResult.release();
+        } catch (InterruptedException e) {
+            faceDetectionResult.release();
+            Thread.currentThread().interrupt();
+            super.sendError(e);
+        }
+    }
+
+    //Mesh worker, a single consumer keeps results in frame order
+    @Override
+    public void run() {
+        while (!super.isClosed()) {
+            FaceDetectionResult faceDetectionResult;
+            try {
+                faceDetectionResult = this.pendingDetections.take();
+            } catch (InterruptedException e) {
+                this.close();
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (faceDetectionResult == null)
+                continue;
+            if (super.isClosed()) {
+                faceDetectionResult.release();
+                return;
+            }
+
+            this.processAndPublish(faceDetectionResult);
+        }
+    }
+
+    //A failed frame releases its results and is reported, the worker running it goes on with the next one
+    private void processAndPublish(FaceDetectionResult faceDetectionResult) {
+        FaceMeshResult result;
+        try {
+            result = this.processFaces(faceDetectionResult);
+        } catch (RuntimeException e) {
+            super.sendError(e);
+            return;
+        }
+        this.publish(result);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        this.faceDetection.close();
+        //Detections waiting for the mesh worker are released by the drop listener
+        this.pendingDetections.close();
+        if (this.meshWorkers != null)
+            this.meshWorkers.shutdown();
+    }
+
+    private void publish(FaceMeshResult result) {
+        long time = System.nanoTime();
+        if (this.completedFrameCount.getAndIncrement() == 0)
+            this.firstResultTime = time;
+        this.lastResultTime = time;
+        this.sendResult(result);
+    }
+
+    //Consumes the detection result, it is released once its faces are meshed or with the result keeping its frame
+    private FaceMeshResult processFaces(FaceDetectionResult faceDetectionResult) {
+        FaceMeshResult result = this.resultPool != null ? this.resultPool.acquire() : new FaceMeshResult();
+        boolean retained = false;
+        try {
+            ImageFrame inputFrame = faceDetectionResult.getInputFrame();
+            List<Face> faces = faceDetectionResult.getFaces();
+            //Meshes are filled in place, a face without mesh leaves null
+            FaceMesh[] faceMeshes = new FaceMesh[faces.size()];
+            for (int i = 0; i < faceMeshes.length; i++)
+                faceMeshes[i] = result.obtainFaceMesh(i, this.tensorToMeshOptions.getNumLandmarks(), this.tensorToMeshOptions.isHalfPrecision());
+
+            //Frames finish out of order, the meshes are only reused when they belong to the frame the faces came from
+            LastMeshes lastMeshes = this.lastMeshes;
+            if (faceDetectionResult.isReused() && lastMeshes != null &&
+                    lastMeshes.frameId == faceDetectionResult.getSourceFrameId() && lastMeshes.meshes.size() == faceMeshes.length) {
+                //Tracks and tracker stay as they were, the frame barely changed
+                for (int i = 0; i < faceMeshes.length; i++) {
+                    if (lastMeshes.meshes.get(i) == null)
+                        faceMeshes[i] = null;
+                    else
+                        faceMeshes[i].set(lastMeshes.meshes.get(i));
+                }
+                result.setReused(true);
+            } else {
+                this.processFaces(inputFrame, faces, faceMeshes, faceDetectionResult.getSourceFrameId());
+            }
 
-        Bitmap inputBitmap = faceDetectionResult.getInputBitmap();
-        Size bitmapSize = new Size(inputBitmap.getWidth(), inputBitmap.getHeight());
+            //Gathered by index, so meshes keep the detection order
+            for (FaceMesh faceMesh : faceMeshes) {
+                if (faceMesh != null)
+                    result.getFacesMesh().add(faceMesh);
+            }
 
-        List<FaceMesh> facesMesh = new ArrayList<>();
+            switch (this.options.getInputBitmapMode()) {
+                case FULL:
+                    //Frames without a bitmap have nothing to show, retaining them would only pin their buffers
+                    Bitmap inputBitmap = faceDetectionResult.getInputBitmap();
+                    result.setInputBitmap(inputBitmap);
+                    if (inputBitmap != null) {
+                        result.setSource(faceDetectionResult);
+                        retained = true;
+                    }
+                    break;
+                case THUMBNAIL:
+                    result.setInputBitmap(FrameThumbnail.create(inputFrame, this.options.getThumbnailSize()));
+                    break;
+                default:
+                    result.setInputBitmap(null);
+                    break;
+            }
+            result.setFrameId(faceDetectionResult.getFrameId());
+            return result;
+        } catch (RuntimeException e) {
+            result.release();
+            throw e;
+        } finally {
+            if (!retained)
+                faceDetectionResult.release();
+        }
+    }
+
+    //Meshes the faces of a processed frame, keeping tracks, tracker and the copy for the motion gate up to date.
+    //The copy is kept for the frame the faces were detected on, the one later reused results refer to.
+    private void processFaces(ImageFrame inputFrame, List<Face> faces, FaceMesh[] faceMeshes, long sourceFrameId) {
+        if (this.faceTrackManager != null)
+            this.processTrackedFaces(inputFrame, faces, faceMeshes);
+        else
+            this.meshFaces(inputFrame, faces, faceMeshes);
+
+        if (this.landmarkTracker != null)
+            this.landmarkTracker.update(faceMeshes);
+
+        if (this.options.getMaxFrameDifference() != -1) {
+            List<FaceMesh> lastMeshes = new ArrayList<>(faceMeshes.length);
+            for (FaceMesh faceMesh : faceMeshes) {
+                FaceMesh copy = null;
+                if (faceMesh != null) {
+                    copy = new FaceMesh(faceMesh.getNumLandmarks(), faceMesh.isHalfPrecision());
+                    copy.set(faceMesh);
+                }
+                lastMeshes.add(copy);
+            }
+            this.lastMeshes = new LastMeshes(sourceFrameId, lastMeshes);
+        }
+    }
+
+    private void meshFaces(ImageFrame inputFrame, List<Face> faces, FaceMesh[] faceMeshes) {
+        if (this.options.isBatchInference() && faces.size() > 1) {
+            this.processFacesBatched(inputFrame, faces, faceMeshes);
+        } else if (this.meshWorkers == null || faces.size() < 2) {
+            for (int i = 0; i < faces.size(); i++)
+                faceMeshes[i] = this.processFace(inputFrame, faces.get(i), faceMeshes[i]);
+        } else {
+            this.processFacesInParallel(inputFrame, faces, faceMeshes);
+        }
+    }
+
+    //Only faces due for a refresh run the mesh model, the others reuse the mesh of their track.
+    //The manager is only held to update and to apply, frames run the model concurrently.
+    private void processTrackedFaces(ImageFrame inputFrame, List<Face> faces, FaceMesh[] faceMeshes) {
+        FaceTrackManager.Frame frame = this.faceTrackManager.update(faces);
+        List<Face> refreshedFaces = new ArrayList<>(faces.size());
+        List<FaceMesh> refreshedMeshes = new ArrayList<>(faces.size());
+        for (int i = 0; i < faces.size(); i++) {
+            if (frame.isRefreshDue(i)) {
+                refreshedFaces.add(faces.get(i));
+                refreshedMeshes.add(faceMeshes[i]);
+            }
+        }
 
-        result.setFacesMesh(facesMesh);
-        result.setInputBitmap(inputBitmap);
+        FaceMesh[] refreshed = refreshedMeshes.toArray(new FaceMesh[0]);
+        this.meshFaces(inputFrame, refreshedFaces, refreshed);
 
-        for (Face face : faceDetectionResult.getFaces()) {
-            /* PointF leftEye = RectTransformation.unNormalizePointF(face.getRelativeKeyPoint(Face.Landmarks.LEFT_EYE),
-                    bitmapSize);
-            PointF rightEye = RectTransformation.unNormalizePointF(face.getRelativeKeyPoint(Face.Landmarks.RIGHT_EYE),
-                    bitmapSize);
+        int next = 0;
+        for (int i = 0; i < faces.size(); i++) {
+            if (frame.isRefreshDue(i))
+                faceMeshes[i] = refreshed[next++];
+        }
+        this.faceTrackManager.apply(frame, faceMeshes);
+    }
+
+    //The calling thread and up to numInterpreters - 1 helpers claim faces until none is left
+    private void processFacesInParallel(ImageFrame inputFrame, List<Face> faces, FaceMesh[] faceMeshes) {
+        AtomicInteger nextFace = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = nextFace.getAndIncrement()) < faces.size()) {
+                try {
+                    faceMeshes[i] = this.processFace(inputFrame, faces.get(i), faceMeshes[i]);
+                } catch (Exception e) {
+                    faceMeshes[i] = null;
+                    super.sendError(e);
+                }
+            }
+        };
+
+        int numHelpers = Math.min(faces.size(), super.getNumInterpreters()) - 1;
+        CountDownLatch helpersDone = new CountDownLatch(numHelpers);
+        for (int h = 0; h < numHelpers; h++) {
+            try {
+                this.meshWorkers.execute(() -> {
+                    try {
+                        worker.run();
+                    } finally {
+                        helpersDone.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                helpersDone.countDown();
+            }
+        }
+        worker.run();
+
+        try {
+            helpersDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            super.sendError(e);
+        }
+    }
+
+    private void processFacesBatched(ImageFrame inputFrame, List<Face> faces, FaceMesh[] faceMeshes) {
+        Size bitmapSize = new Size(inputFrame.getWidth(), inputFrame.getHeight());
+        RectF[] rois = new RectF[faces.size()];
+        List<FaceCrop> faceCrops = new ArrayList<>(faces.size());
+        for (int i = 0; i < faces.size(); i++) {
+            rois[i] = this.getRoi(bitmapSize, faces.get(i));
+            faceCrops.add(new FaceCrop(inputFrame, rois[i]));
+        }
 
-            float rotationDegree = RectTransformation.getRotationRadian(leftEye, rightEye); */
-            RectF roi = RectTransformation.transform(RectTransformation.unNormalizeRectF(face.getRelativeCoordinate(), bitmapSize), 0);
+        try (Invocation invocation = super.interpretBatch(faceCrops)) {
+            if (invocation == null) {
+                Arrays.fill(faceMeshes, null);
+                return;
+            }
+            FloatBuffer rawScores = invocation.getFloatOutput(1);
+            FloatBuffer rawMeshes = invocation.getFloatOutput(0);
+            int scoreStride = rawScores.capacity() / invocation.getBatchSize();
+            int meshStride = rawMeshes.capacity() / invocation.getBatchSize();
+            for (int i = 0; i < faces.size(); i++) {
+                //Decoders read one face from the buffer positions
+                rawScores.position(i * scoreStride);
+                rawMeshes.position(i * meshStride);
+                faceMeshes[i] = this.tensorToMesh.process(
+                        bitmapSize,
+                        this.tensorToMeshOptions,
+                        rawScores,
+                        rawMeshes, rois[i], faceMeshes[i]
+                );
+            }
+        }
+    }
 
-            TensorImage croppedTensor = new TensorImage(DataType.FLOAT32);
-            croppedTensor.load(inputBitmap);
-            Bitmap croppedBitmap = new ImageProcessor.Builder().add(new CropOp(roi)).build().process(croppedTensor).getBitmap();
+    @Nullable
+    private FaceMesh processFace(ImageFrame inputFrame, Face face, FaceMesh faceMesh) {
+        Size bitmapSize = new Size(inputFrame.getWidth(), inputFrame.getHeight());
+        RectF roi = this.getRoi(bitmapSize, face);
 
-            super.interpret(croppedBitmap);
-            FaceMesh faceMesh = this.tensorToMesh.process(
-                    new Size(inputBitmap.getWidth(), inputBitmap.getHeight()),
+        try (Invocation invocation = super.interpret(new FaceCrop(inputFrame, roi))) {
+            if (invocation == null)
+                return null;
+            return this.tensorToMesh.process(
+                    bitmapSize,
                     this.tensorToMeshOptions,
-                    this.classificationOutput,
-                    this.regressionOutput, roi
+                    invocation.getFloatOutput(1),
+                    invocation.getFloatOutput(0), roi, faceMesh
             );
-            if (faceMesh != null)
-                facesMesh.add(faceMesh);
-
         }
-        this.sendResult(result);
     }
 
-    @Override
-    public void close() {
-        super.close();
-        this.faceDetection.close();
+    private RectF getRoi(Size bitmapSize, Face face) {
+        /* PointF leftEye = RectTransformation.unNormalizePointF(face.getRelativeKeyPoint(Face.Landmarks.LEFT_EYE),
+                bitmapSize);
+        PointF rightEye = RectTransformation.unNormalizePointF(face.getRelativeKeyPoint(Face.Landmarks.RIGHT_EYE),
+                bitmapSize);
+
+        float rotationDegree = RectTransformation.getRotationRadian(leftEye, rightEye); */
+        return RectTransformation.transform(RectTransformation.unNormalizeRectF(face.getRelativeCoordinate(), bitmapSize), 0);
     }
 
     @Override
@@ -152,18 +533,70 @@ public final class FaceMeshDetection extends SolutionBase<Bitmap, FaceMeshResult
     }
 
     @Override
-    protected Object[] getInputs(Bitmap input) throws Exception {
-        TensorImage image = new TensorImage(DataType.FLOAT32);
-        image.load(input);
-        image = this.resizeAndNormalizeProcessor.process(image);
-        return new Object[]{image.getBuffer()};
+    protected Object[] getInputs(FaceCrop input, int slot) throws Exception {
+        RoiSampler roiSampler = this.roiSamplers[slot];
+        ByteBuffer buffer = this.getInputBuffer(slot, roiSampler.getOutputSize());
+        roiSampler.sample(input.imageFrame, input.roi, buffer);
+        buffer.rewind();
+        return this.inputs[slot];
+    }
+
+    @Override
+    protected Object[] getBatchInputs(List<FaceCrop> inputs, int batchSize, int slot) throws Exception {
+        RoiSampler roiSampler = this.roiSamplers[slot];
+        ByteBuffer buffer = this.getInputBuffer(slot, roiSampler.getOutputSize() * batchSize);
+        for (int i = 0; i < inputs.size(); i++)
+            roiSampler.sample(inputs.get(i).imageFrame, inputs.get(i).roi, buffer);
+        buffer.rewind();
+        return this.inputs[slot];
+    }
+
+    //Batches hold the faces of one frame
+    @Override
+    protected int getMaxBatchSize() {
+        return this.options.getMaxNumberOfFaces();
     }
 
     @Override
-    protected Map<Integer, Object> getOutputs() throws Exception {
+    protected Map<Integer, Object> createOutputs(int batchSize) throws Exception {
         Map<Integer, Object> outputMap = new HashMap<>();
-        outputMap.put(0, this.regressionOutput);
-        outputMap.put(1, this.classificationOutput);
+        outputMap.put(0, allocateFloatOutput(this.regressionOutputShape, batchSize));
+        outputMap.put(1, allocateFloatOutput(this.classificationOutputShape, batchSize));
         return outputMap;
     }
+
+    //Reused per interpreter, the slot is owned by the calling thread until the invocation is closed
+    private ByteBuffer getInputBuffer(int slot, int size) {
+        ByteBuffer buffer = this.inputBuffers[slot];
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+            this.inputBuffers[slot] = buffer;
+            this.inputs[slot] = new Object[]{buffer};
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    //Source frame and the region the mesh model looks at
+    private static final class LastMeshes {
+        private final long frameId;
+        //Indexed like the faces, null for a face without mesh
+        private final List<FaceMesh> meshes;
+
+        private LastMeshes(long frameId, List<FaceMesh> meshes) {
+            this.frameId = frameId;
+            this.meshes = meshes;
+        }
+    }
+
+    static final class FaceCrop {
+        private final ImageFrame imageFrame;
+        private final RectF roi;
+
+        private FaceCrop(ImageFrame imageFrame, RectF roi) {
+            this.imageFrame = imageFrame;
+            this.roi = roi;
+        }
+    }
 }
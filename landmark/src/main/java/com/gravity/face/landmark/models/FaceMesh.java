@@ -1,28 +1,169 @@
 package com.gravity.face.landmark.models;
 
+import com.gravity.face.core.utils.HalfFloat;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
+//Landmarks stored as interleaved relative x, y and z in a single array, in float or half precision
 public final class FaceMesh {
 
-    private List<Landmark> relativeLandmarks;
+    public static final int NUM_COORDINATES = 3;
+
+    private int numLandmarks;
+    private boolean halfPrecision;
+    //Only the array of the current precision is set
+    private float[] coordinates;
+    private short[] halfCoordinates;
     private float faceScorePresence;
+    //Stable across frames with face tracking, -1 without
+    private int trackId = -1;
+    //Created by the first getRelativeLandmarks call
+    private List<Landmark> relativeLandmarks;
 
     public FaceMesh() {
+        this(0, false);
+    }
+
+    //Half precision halves the memory and upload size, relative coordinates keep about 3 significant digits
+    public FaceMesh(int numLandmarks, boolean halfPrecision) {
+        if (numLandmarks < 0)
+            throw new IllegalArgumentException("NumLandmarks must not be negative, numLandmarks: " + numLandmarks);
+        this.allocate(numLandmarks, halfPrecision);
     }
 
     public void setRelativeLandmarks(List<Landmark> relativeLandmarks) {
-        this.relativeLandmarks = relativeLandmarks;
+        this.allocate(relativeLandmarks.size(), this.halfPrecision);
+        for (int i = 0; i < relativeLandmarks.size(); i++) {
+            Landmark landmark = relativeLandmarks.get(i);
+            this.setLandmark(i, landmark.x, landmark.y, landmark.z);
+        }
+    }
+
+    public void setLandmark(int index, float x, float y, float z) {
+        int offset = index * NUM_COORDINATES;
+        if (this.halfPrecision) {
+            this.halfCoordinates[offset] = HalfFloat.toHalf(x);
+            this.halfCoordinates[offset + 1] = HalfFloat.toHalf(y);
+            this.halfCoordinates[offset + 2] = HalfFloat.toHalf(z);
+        } else {
+            this.coordinates[offset] = x;
+            this.coordinates[offset + 1] = y;
+            this.coordinates[offset + 2] = z;
+        }
+        this.relativeLandmarks = null;
+    }
+
+    //Copies landmarks, score and track id, keeping the precision of this mesh
+    public void set(FaceMesh faceMesh) {
+        if (faceMesh.halfPrecision == this.halfPrecision && faceMesh.numLandmarks == this.numLandmarks) {
+            if (this.halfPrecision)
+                System.arraycopy(faceMesh.halfCoordinates, 0, this.halfCoordinates, 0, this.halfCoordinates.length);
+            else
+                System.arraycopy(faceMesh.coordinates, 0, this.coordinates, 0, this.coordinates.length);
+            this.relativeLandmarks = null;
+        } else {
+            this.allocate(faceMesh.numLandmarks, this.halfPrecision);
+            for (int i = 0; i < faceMesh.numLandmarks; i++)
+                this.setLandmark(i, faceMesh.getX(i), faceMesh.getY(i), faceMesh.getZ(i));
+        }
+        this.faceScorePresence = faceMesh.faceScorePresence;
+        this.trackId = faceMesh.trackId;
     }
 
     public void setFaceScorePresence(float faceScorePresence) {
         this.faceScorePresence = faceScorePresence;
     }
 
+    public void setTrackId(int trackId) {
+        this.trackId = trackId;
+    }
+
+    //Copy of the coordinates with a Landmark per point made on first use, prefer the index accessors or copyTo
     public List<Landmark> getRelativeLandmarks() {
-        return relativeLandmarks;
+        if (this.relativeLandmarks == null) {
+            this.relativeLandmarks = new ArrayList<>(this.numLandmarks);
+            for (int i = 0; i < this.numLandmarks; i++)
+                this.relativeLandmarks.add(new Landmark(this.getX(i), this.getY(i), this.getZ(i)));
+        }
+        return this.relativeLandmarks;
     }
 
     public float getFaceScorePresence() {
         return faceScorePresence;
     }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    public int getNumLandmarks() {
+        return numLandmarks;
+    }
+
+    public boolean isHalfPrecision() {
+        return halfPrecision;
+    }
+
+    public float getX(int index) {
+        return this.get(index * NUM_COORDINATES);
+    }
+
+    public float getY(int index) {
+        return this.get(index * NUM_COORDINATES + 1);
+    }
+
+    public float getZ(int index) {
+        return this.get(index * NUM_COORDINATES + 2);
+    }
+
+    //Copies numLandmarks x NUM_COORDINATES floats starting at offset
+    public void copyTo(float[] destination, int offset) {
+        if (!this.halfPrecision) {
+            System.arraycopy(this.coordinates, 0, destination, offset, this.coordinates.length);
+            return;
+        }
+        if (destination.length - offset < this.halfCoordinates.length)
+            throw new IndexOutOfBoundsException("Destination is too small, length: " + destination.length);
+        for (int i = 0; i < this.halfCoordinates.length; i++)
+            destination[offset + i] = HalfFloat.toFloat(this.halfCoordinates[i]);
+    }
+
+    //Writes numLandmarks x NUM_COORDINATES floats at the destination position and advances it
+    public void copyTo(FloatBuffer destination) {
+        if (!this.halfPrecision) {
+            destination.put(this.coordinates);
+            return;
+        }
+        if (destination.remaining() < this.halfCoordinates.length)
+            throw new IndexOutOfBoundsException("Destination is too small, remaining: " + destination.remaining());
+        for (short halfCoordinate : this.halfCoordinates)
+            destination.put(HalfFloat.toFloat(halfCoordinate));
+    }
+
+    //Writes numLandmarks x NUM_COORDINATES half floats at the destination position and advances it, for half float vertex attributes
+    public void copyTo(ShortBuffer destination) {
+        if (this.halfPrecision) {
+            destination.put(this.halfCoordinates);
+            return;
+        }
+        if (destination.remaining() < this.coordinates.length)
+            throw new IndexOutOfBoundsException("Destination is too small, remaining: " + destination.remaining());
+        for (float coordinate : this.coordinates)
+            destination.put(HalfFloat.toHalf(coordinate));
+    }
+
+    private float get(int offset) {
+        return this.halfPrecision ? HalfFloat.toFloat(this.halfCoordinates[offset]) : this.coordinates[offset];
+    }
+
+    private void allocate(int numLandmarks, boolean halfPrecision) {
+        this.numLandmarks = numLandmarks;
+        this.halfPrecision = halfPrecision;
+        this.coordinates = halfPrecision ? null : new float[numLandmarks * NUM_COORDINATES];
+        this.halfCoordinates = halfPrecision ? new short[numLandmarks * NUM_COORDINATES] : null;
+        this.relativeLandmarks = null;
+    }
 }
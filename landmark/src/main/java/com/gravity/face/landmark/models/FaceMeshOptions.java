@@ -1,13 +1,59 @@
 package com.gravity.face.landmark.models;
 
+import com.gravity.face.detection.models.FaceDetectionOptions;
+
+import java.util.Objects;
+
 public final class FaceMeshOptions {
 
     private final float minConfidence;
     private final int maxNumberOfFaces;
+    private final FaceDetectionOptions.BackpressurePolicy backpressurePolicy;
+    private final int queueDepth;
+    private final long maxFrameAgeMillis;
+    private final int numInterpreters;
+    private final boolean pipelined;
+    private final boolean batchInference;
+    private final boolean halfPrecisionLandmarks;
+    private final boolean pooledResults;
+    private final boolean resultLeakDetection;
+    private final FaceDetectionOptions.InputBitmapMode inputBitmapMode;
+    private final int thumbnailSize;
+    private final long maxRetainedBytes;
+    private final boolean landmarkTracking;
+    private final float minTrackingConfidence;
+    private final int maxTrackedFrames;
+    private final boolean faceTracking;
+    private final int maxMeshesPerFrame;
+    private final int maxRefreshInterval;
+    private final float maxFrameDifference;
+    private final int maxReusedFrames;
+    private final boolean shareInterpreters;
 
     private FaceMeshOptions(Builder builder) {
         this.minConfidence = builder.minConfidence;
         this.maxNumberOfFaces = builder.maxNumberOfFaces;
+        this.backpressurePolicy = builder.backpressurePolicy;
+        this.queueDepth = builder.queueDepth;
+        this.maxFrameAgeMillis = builder.maxFrameAgeMillis;
+        this.numInterpreters = builder.numInterpreters;
+        this.pipelined = builder.pipelined;
+        this.batchInference = builder.batchInference;
+        this.halfPrecisionLandmarks = builder.halfPrecisionLandmarks;
+        this.pooledResults = builder.pooledResults;
+        this.resultLeakDetection = builder.resultLeakDetection;
+        this.inputBitmapMode = builder.inputBitmapMode;
+        this.thumbnailSize = builder.thumbnailSize;
+        this.maxRetainedBytes = builder.maxRetainedBytes;
+        this.landmarkTracking = builder.landmarkTracking;
+        this.minTrackingConfidence = builder.minTrackingConfidence;
+        this.maxTrackedFrames = builder.maxTrackedFrames;
+        this.faceTracking = builder.faceTracking;
+        this.maxMeshesPerFrame = builder.maxMeshesPerFrame;
+        this.maxRefreshInterval = builder.maxRefreshInterval;
+        this.maxFrameDifference = builder.maxFrameDifference;
+        this.maxReusedFrames = builder.maxReusedFrames;
+        this.shareInterpreters = builder.shareInterpreters;
     }
 
     public float getMinConfidence() {
@@ -18,9 +64,114 @@ public final class FaceMeshOptions {
         return maxNumberOfFaces;
     }
 
+    public FaceDetectionOptions.BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getMaxFrameAgeMillis() {
+        return maxFrameAgeMillis;
+    }
+
+    public int getNumInterpreters() {
+        return numInterpreters;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public boolean isBatchInference() {
+        return batchInference;
+    }
+
+    public boolean isHalfPrecisionLandmarks() {
+        return halfPrecisionLandmarks;
+    }
+
+    public boolean isPooledResults() {
+        return pooledResults;
+    }
+
+    public boolean isResultLeakDetection() {
+        return resultLeakDetection;
+    }
+
+    public FaceDetectionOptions.InputBitmapMode getInputBitmapMode() {
+        return inputBitmapMode;
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    public boolean isLandmarkTracking() {
+        return landmarkTracking;
+    }
+
+    public float getMinTrackingConfidence() {
+        return minTrackingConfidence;
+    }
+
+    public int getMaxTrackedFrames() {
+        return maxTrackedFrames;
+    }
+
+    public boolean isFaceTracking() {
+        return faceTracking;
+    }
+
+    public int getMaxMeshesPerFrame() {
+        return maxMeshesPerFrame;
+    }
+
+    public int getMaxRefreshInterval() {
+        return maxRefreshInterval;
+    }
+
+    public float getMaxFrameDifference() {
+        return maxFrameDifference;
+    }
+
+    public int getMaxReusedFrames() {
+        return maxReusedFrames;
+    }
+
+    public boolean isShareInterpreters() {
+        return shareInterpreters;
+    }
+
     public final static class Builder {
         private float minConfidence = 0.5f;
         private int maxNumberOfFaces = 1;
+        private FaceDetectionOptions.BackpressurePolicy backpressurePolicy = FaceDetectionOptions.BackpressurePolicy.DROP_OLDEST;
+        private int queueDepth = 10;
+        private long maxFrameAgeMillis = -1;
+        private int numInterpreters = 1;
+        private boolean pipelined = true;
+        private boolean batchInference = false;
+        private boolean halfPrecisionLandmarks = false;
+        private boolean pooledResults = false;
+        private boolean resultLeakDetection = false;
+        private FaceDetectionOptions.InputBitmapMode inputBitmapMode = FaceDetectionOptions.InputBitmapMode.FULL;
+        private int thumbnailSize = 160;
+        private long maxRetainedBytes = -1;
+        private boolean landmarkTracking = false;
+        private float minTrackingConfidence = 0.5f;
+        private int maxTrackedFrames = 30;
+        private boolean faceTracking = false;
+        private int maxMeshesPerFrame = -1;
+        private int maxRefreshInterval = 10;
+        private float maxFrameDifference = -1f;
+        private int maxReusedFrames = 30;
+        private boolean shareInterpreters = false;
 
         public Builder() {
         }
@@ -35,6 +186,131 @@ public final class FaceMeshOptions {
             return this;
         }
 
+        public Builder setBackpressurePolicy(FaceDetectionOptions.BackpressurePolicy backpressurePolicy) {
+            this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy);
+            return this;
+        }
+
+        //Number of pending frames for DROP_OLDEST and BLOCK policies
+        public Builder setQueueDepth(int queueDepth) {
+            this.queueDepth = queueDepth;
+            return this;
+        }
+
+        //Frames pending longer than this are discarded before inference, -1 disables the deadline
+        public Builder setMaxFrameAgeMillis(long maxFrameAgeMillis) {
+            this.maxFrameAgeMillis = maxFrameAgeMillis;
+            return this;
+        }
+
+        //Interpreters available to concurrent process calls, shared with the face detector
+        public Builder setNumInterpreters(int numInterpreters) {
+            this.numInterpreters = numInterpreters;
+            return this;
+        }
+
+        //Runs mesh inference on its own worker so detection of the next frame overlaps it, false runs both stages on the detection worker
+        public Builder setPipelined(boolean pipelined) {
+            this.pipelined = pipelined;
+            return this;
+        }
+
+        //Runs all faces of a frame as one batch through a single interpreter call instead of one call per face
+        public Builder setBatchInference(boolean batchInference) {
+            this.batchInference = batchInference;
+            return this;
+        }
+
+        //Stores landmarks as half floats, halving their memory and upload size at about 3 significant digits
+        public Builder setHalfPrecisionLandmarks(boolean halfPrecisionLandmarks) {
+            this.halfPrecisionLandmarks = halfPrecisionLandmarks;
+            return this;
+        }
+
+        //Borrows results from a bounded pool, the result listener or caller of process owns each result until it calls release
+        public Builder setPooledResults(boolean pooledResults) {
+            this.pooledResults = pooledResults;
+            return this;
+        }
+
+        //Reports pooled results garbage collected without release to the error listener, for debugging
+        public Builder setResultLeakDetection(boolean resultLeakDetection) {
+            this.resultLeakDetection = resultLeakDetection;
+            return this;
+        }
+
+        //Image attached to results, full frames count against the memory budget until their result is released
+        public Builder setInputBitmapMode(FaceDetectionOptions.InputBitmapMode inputBitmapMode) {
+            this.inputBitmapMode = Objects.requireNonNull(inputBitmapMode);
+            return this;
+        }
+
+        //Longer side of THUMBNAIL images in pixels
+        public Builder setThumbnailSize(int thumbnailSize) {
+            this.thumbnailSize = thumbnailSize;
+            return this;
+        }
+
+        //Bytes of frames the pipeline may retain, past it detect drops the oldest pending frames or blocks with the BLOCK policy, -1 disables the budget
+        public Builder setMaxRetainedBytes(long maxRetainedBytes) {
+            this.maxRetainedBytes = maxRetainedBytes;
+            return this;
+        }
+
+        //Takes the face rois of a frame from the meshes of the previous one and only runs the detector when a face is lost
+        public Builder setLandmarkTracking(boolean landmarkTracking) {
+            this.landmarkTracking = landmarkTracking;
+            return this;
+        }
+
+        //Mesh presence score under which a tracked face is lost and the detector runs again
+        public Builder setMinTrackingConfidence(float minTrackingConfidence) {
+            this.minTrackingConfidence = minTrackingConfidence;
+            return this;
+        }
+
+        //Frames tracked in a row before the detector runs again to pick up new faces, -1 only runs it once a face is lost
+        public Builder setMaxTrackedFrames(int maxTrackedFrames) {
+            this.maxTrackedFrames = maxTrackedFrames;
+            return this;
+        }
+
+        //Gives meshes a track id stable across frames and only refreshes the meshes of faces picked under maxMeshesPerFrame
+        public Builder setFaceTracking(boolean faceTracking) {
+            this.faceTracking = faceTracking;
+            return this;
+        }
+
+        //Mesh inferences per frame with face tracking, faces that moved most for their size go first and the others reuse their last mesh, -1 meshes every face
+        public Builder setMaxMeshesPerFrame(int maxMeshesPerFrame) {
+            this.maxMeshesPerFrame = maxMeshesPerFrame;
+            return this;
+        }
+
+        //Frames after which a track is refreshed before faces that moved, as far as maxMeshesPerFrame allows
+        public Builder setMaxRefreshInterval(int maxRefreshInterval) {
+            this.maxRefreshInterval = maxRefreshInterval;
+            return this;
+        }
+
+        //Mean luminance change out of 255 under which a frame reuses the meshes of the last processed frame instead of running inference, -1 processes every frame
+        public Builder setMaxFrameDifference(float maxFrameDifference) {
+            this.maxFrameDifference = maxFrameDifference;
+            return this;
+        }
+
+        //Frames in a row that may reuse a result before one is processed again
+        public Builder setMaxReusedFrames(int maxReusedFrames) {
+            this.maxReusedFrames = maxReusedFrames;
+            return this;
+        }
+
+        //Runs on the interpreters of other meshes with the same model and number of interpreters instead of creating its own
+        public Builder setShareInterpreters(boolean shareInterpreters) {
+            this.shareInterpreters = shareInterpreters;
+            return this;
+        }
+
         public FaceMeshOptions build() {
             FaceMeshOptions options = new FaceMeshOptions(this);
             validate(options);
@@ -48,6 +324,33 @@ public final class FaceMeshOptions {
             if (options.getMinConfidence() < 0 || options.getMinConfidence() > 1) {
                 throw new IllegalArgumentException("MinConfidence must be between 0 and 1");
             }
+            if (options.getNumInterpreters() < 1) {
+                throw new IllegalArgumentException("NumInterpreters must be greater than 0, numInterpreters: " + options.getNumInterpreters());
+            }
+            if (options.getThumbnailSize() < 1) {
+                throw new IllegalArgumentException("ThumbnailSize must be greater than 0, thumbnailSize: " + options.getThumbnailSize());
+            }
+            if (options.getMaxRetainedBytes() == 0 || options.getMaxRetainedBytes() < -1) {
+                throw new IllegalArgumentException("MaxRetainedBytes must be greater than 0 or -1, maxRetainedBytes: " + options.getMaxRetainedBytes());
+            }
+            if (options.getMinTrackingConfidence() < 0 || options.getMinTrackingConfidence() > 1) {
+                throw new IllegalArgumentException("MinTrackingConfidence must be between 0 and 1");
+            }
+            if (options.getMaxTrackedFrames() < 1 && options.getMaxTrackedFrames() != -1) {
+                throw new IllegalArgumentException("MaxTrackedFrames must be greater than 0 or -1, maxTrackedFrames: " + options.getMaxTrackedFrames());
+            }
+            if (options.getMaxMeshesPerFrame() < 1 && options.getMaxMeshesPerFrame() != -1) {
+                throw new IllegalArgumentException("MaxMeshesPerFrame must be greater than 0 or -1, maxMeshesPerFrame: " + options.getMaxMeshesPerFrame());
+            }
+            if (options.getMaxRefreshInterval() < 1) {
+                throw new IllegalArgumentException("MaxRefreshInterval must be greater than 0, maxRefreshInterval: " + options.getMaxRefreshInterval());
+            }
+            if (options.getMaxFrameDifference() <= 0 && options.getMaxFrameDifference() != -1) {
+                throw new IllegalArgumentException("MaxFrameDifference must be greater than 0 or -1, maxFrameDifference: " + options.getMaxFrameDifference());
+            }
+            if (options.getMaxReusedFrames() < 1) {
+                throw new IllegalArgumentException("MaxReusedFrames must be greater than 0, maxReusedFrames: " + options.getMaxReusedFrames());
+            }
         }
     }
 }
@@ -2,14 +2,24 @@ package com.gravity.face.landmark.models;
 
 import android.graphics.Bitmap;
 
+import com.gravity.face.core.RecyclableResult;
+
+import java.util.ArrayList;
 import java.util.List;
 
-public final class FaceMeshResult {
+public final class FaceMeshResult extends RecyclableResult {
 
     private List<FaceMesh> facesMesh;
     private Bitmap inputBitmap;
+    private long frameId;
+    //Meshes of the last processed frame, this frame barely changed
+    private boolean reused;
+    //Meshes of earlier frames kept to be filled again, indexed by face
+    private final List<FaceMesh> spareFacesMesh;
 
     public FaceMeshResult() {
+        this.facesMesh = new ArrayList<>();
+        this.spareFacesMesh = new ArrayList<>();
     }
 
     public void setFacesMesh(List<FaceMesh> facesMesh) {
@@ -20,6 +30,18 @@ public final class FaceMeshResult {
         this.inputBitmap = inputBitmap;
     }
 
+    public void setFrameId(long frameId) {
+        this.frameId = frameId;
+    }
+
+    public void setReused(boolean reused) {
+        this.reused = reused;
+    }
+
+    public boolean isReused() {
+        return reused;
+    }
+
     public List<FaceMesh> getFacesMesh() {
         return facesMesh;
     }
@@ -27,4 +49,32 @@ public final class FaceMeshResult {
     public Bitmap getInputBitmap() {
         return inputBitmap;
     }
+
+    public long getFrameId() {
+        return frameId;
+    }
+
+    //Mesh at index of an earlier frame, or a new one when there is none with the same layout
+    public FaceMesh obtainFaceMesh(int index, int numLandmarks, boolean halfPrecision) {
+        if (index < this.spareFacesMesh.size()) {
+            FaceMesh faceMesh = this.spareFacesMesh.get(index);
+            if (faceMesh.getNumLandmarks() == numLandmarks && faceMesh.isHalfPrecision() == halfPrecision)
+                return faceMesh;
+        }
+
+        FaceMesh faceMesh = new FaceMesh(numLandmarks, halfPrecision);
+        if (index < this.spareFacesMesh.size())
+            this.spareFacesMesh.set(index, faceMesh);
+        else if (index == this.spareFacesMesh.size())
+            this.spareFacesMesh.add(faceMesh);
+        return faceMesh;
+    }
+
+    @Override
+    protected void recycle() {
+        this.facesMesh.clear();
+        this.inputBitmap = null;
+        this.frameId = 0;
+        this.reused = false;
+    }
 }
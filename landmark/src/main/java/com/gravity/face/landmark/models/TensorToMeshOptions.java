@@ -7,13 +7,19 @@ public final class TensorToMeshOptions {
     private final float minScoreThreshold;
     private final float xScale;
     private final float yScale;
+    private final boolean halfPrecision;
 
     public TensorToMeshOptions(int numLandmarks, int numCoordinates, float minScoreThreshold, float xScale, float yScale) {
+        this(numLandmarks, numCoordinates, minScoreThreshold, xScale, yScale, false);
+    }
+
+    public TensorToMeshOptions(int numLandmarks, int numCoordinates, float minScoreThreshold, float xScale, float yScale, boolean halfPrecision) {
         this.numLandmarks = numLandmarks;
         this.numCoordinates = numCoordinates;
         this.minScoreThreshold = minScoreThreshold;
         this.xScale = xScale;
         this.yScale = yScale;
+        this.halfPrecision = halfPrecision;
     }
 
     public int getNumLandmarks() {
@@ -36,12 +42,25 @@ public final class TensorToMeshOptions {
         return yScale;
     }
 
+    public boolean isHalfPrecision() {
+        return halfPrecision;
+    }
+
     public static TensorToMeshOptions withDefaultValues() {
+        return withDefaultValues(false);
+    }
+
+    public static TensorToMeshOptions withDefaultValues(FaceMeshOptions options) {
+        return withDefaultValues(options.isHalfPrecisionLandmarks());
+    }
+
+    public static TensorToMeshOptions withDefaultValues(boolean halfPrecision) {
         return new TensorToMeshOptions(
                 468,
                 3,
                 0.5f,
                 192.0f,
-                192.0f);
+                192.0f,
+                halfPrecision);
     }
 }
@@ -0,0 +1,212 @@
+package com.gravity.face.landmark.utils;
+
+import android.graphics.RectF;
+
+import com.gravity.face.detection.models.Face;
+import com.gravity.face.detection.utils.TensorToFaces;
+import com.gravity.face.landmark.models.FaceMesh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+//Associates faces across frames by box overlap, gives each face a stable track id and picks the tracks whose mesh is refreshed.
+//Up to maxMeshesPerFrame tracks are refreshed per frame, new and overdue tracks first, then the ones that moved most for their size.
+//The other tracks reuse their last mesh moved along with the face box.
+//Frames only hold the manager to update and to apply their meshes, the model runs in between without it.
+public final class FaceTrackManager {
+
+    //Minimum overlap of a face with the box of a track to continue it
+    private static final float MIN_OVERLAP = 0.3f;
+    //Frames a track survives without a matching face, covers detector misses
+    private static final int MAX_MISSED_FRAMES = 5;
+
+    private final int maxMeshesPerFrame;
+    private final int maxRefreshInterval;
+    private final List<Track> tracks;
+    private int nextTrackId;
+
+    //maxMeshesPerFrame -1 refreshes every face, tracks are refreshed at least every maxRefreshInterval frames when the budget allows
+    public FaceTrackManager(int maxMeshesPerFrame, int maxRefreshInterval) {
+        this.maxMeshesPerFrame = maxMeshesPerFrame;
+        this.maxRefreshInterval = maxRefreshInterval;
+        this.tracks = new ArrayList<>();
+    }
+
+    //Matches the faces to tracks and decides which ones are refreshed, the meshes are handed back through apply
+    public synchronized Frame update(List<Face> faces) {
+        List<Track> matched = this.associate(faces);
+        for (Iterator<Track> iterator = this.tracks.iterator(); iterator.hasNext(); ) {
+            Track track = iterator.next();
+            if (!matched.contains(track) && ++track.missedFrames > MAX_MISSED_FRAMES)
+                iterator.remove();
+        }
+        return new Frame(matched, this.schedule(matched));
+    }
+
+    //Faces due for a refresh come with the mesh fresh from the model, the others get the last mesh of their track.
+    //A refresh is only kept while no later frame updated the track, its box would not belong to the mesh.
+    public synchronized void apply(Frame frame, FaceMesh[] faceMeshes) {
+        for (int i = 0; i < frame.tracks.length; i++) {
+            Track track = frame.tracks[i];
+            if (frame.refreshDue[i]) {
+                if (track.generation == frame.generations[i])
+                    track.refresh(faceMeshes[i]);
+            } else {
+                faceMeshes[i] = track.reuse(frame.boxes[i], faceMeshes[i]);
+            }
+            if (faceMeshes[i] != null)
+                faceMeshes[i].setTrackId(track.id);
+        }
+    }
+
+    //Greedy matching, the pairs with the highest overlap are matched first
+    private List<Track> associate(List<Face> faces) {
+        List<float[]> pairs = new ArrayList<>();
+        for (int f = 0; f < faces.size(); f++) {
+            for (int t = 0; t < this.tracks.size(); t++) {
+                float overlap = TensorToFaces.calculateOverlapSimilarity(faces.get(f).getRelativeCoordinate(), this.tracks.get(t).box);
+                if (overlap >= MIN_OVERLAP)
+                    pairs.add(new float[]{overlap, f, t});
+            }
+        }
+        Collections.sort(pairs, (o1, o2) -> Float.compare(o2[0], o1[0]));
+
+        Track[] matched = new Track[faces.size()];
+        boolean[] taken = new boolean[this.tracks.size()];
+        for (float[] pair : pairs) {
+            int f = (int) pair[1];
+            int t = (int) pair[2];
+            if (matched[f] == null && !taken[t]) {
+                matched[f] = this.tracks.get(t);
+                taken[t] = true;
+            }
+        }
+
+        List<Track> result = new ArrayList<>(faces.size());
+        for (int f = 0; f < faces.size(); f++) {
+            Track track = matched[f];
+            if (track == null) {
+                track = new Track(this.nextTrackId++);
+                track.refreshBox.set(faces.get(f).getRelativeCoordinate());
+                this.tracks.add(track);
+            }
+            track.box.set(faces.get(f).getRelativeCoordinate());
+            track.missedFrames = 0;
+            track.framesSinceRefresh++;
+            track.generation++;
+            result.add(track);
+        }
+        return result;
+    }
+
+    //Refresh decision of each track, in the order of the tracks
+    private boolean[] schedule(List<Track> tracks) {
+        List<Track> candidates = new ArrayList<>(tracks);
+        Collections.sort(candidates, (o1, o2) -> {
+            boolean overdue1 = this.isOverdue(o1);
+            boolean overdue2 = this.isOverdue(o2);
+            if (overdue1 != overdue2)
+                return overdue1 ? -1 : 1;
+            return Float.compare(o2.getPriority(), o1.getPriority());
+        });
+        int budget = this.maxMeshesPerFrame == -1 ? candidates.size() : Math.min(this.maxMeshesPerFrame, candidates.size());
+        boolean[] refreshDue = new boolean[tracks.size()];
+        for (int i = 0; i < budget; i++)
+            refreshDue[tracks.indexOf(candidates.get(i))] = true;
+        return refreshDue;
+    }
+
+    private boolean isOverdue(Track track) {
+        return track.coordinates == null || track.framesSinceRefresh >= this.maxRefreshInterval;
+    }
+
+    //Decisions of one frame, taken by update and applied by apply
+    public static final class Frame {
+        private final Track[] tracks;
+        private final boolean[] refreshDue;
+        //Generation and box of each track as this frame left them
+        private final long[] generations;
+        private final RectF[] boxes;
+
+        private Frame(List<Track> tracks, boolean[] refreshDue) {
+            this.tracks = tracks.toArray(new Track[0]);
+            this.refreshDue = refreshDue;
+            this.generations = new long[this.tracks.length];
+            this.boxes = new RectF[this.tracks.length];
+            for (int i = 0; i < this.tracks.length; i++) {
+                this.generations[i] = this.tracks[i].generation;
+                this.boxes[i] = new RectF(this.tracks[i].box);
+            }
+        }
+
+        public int size() {
+            return this.tracks.length;
+        }
+
+        //Whether the mesh of the face at index has to come from the model
+        public boolean isRefreshDue(int index) {
+            return this.refreshDue[index];
+        }
+
+        public int getTrackId(int index) {
+            return this.tracks[index].id;
+        }
+    }
+
+    //Guarded by the manager
+    private static final class Track {
+        private final int id;
+        //Relative box of the face in the last frame and when the mesh was refreshed
+        private final RectF box;
+        private final RectF refreshBox;
+        private int missedFrames;
+        private int framesSinceRefresh;
+        //Frames that updated the track
+        private long generation;
+        //Copy of the last refreshed mesh, null until the first one
+        private float[] coordinates;
+        private float faceScorePresence;
+
+        private Track(int id) {
+            this.id = id;
+            this.box = new RectF();
+            this.refreshBox = new RectF();
+        }
+
+        //Keeps a copy of a mesh fresh from the model, null keeps the previous one and retries next frame
+        private void refresh(FaceMesh faceMesh) {
+            if (faceMesh == null)
+                return;
+            int size = faceMesh.getNumLandmarks() * FaceMesh.NUM_COORDINATES;
+            if (this.coordinates == null || this.coordinates.length != size)
+                this.coordinates = new float[size];
+            faceMesh.copyTo(this.coordinates, 0);
+            this.faceScorePresence = faceMesh.getFaceScorePresence();
+            this.refreshBox.set(this.box);
+            this.framesSinceRefresh = 0;
+        }
+
+        //Fills faceMesh with the last mesh moved by how far the box center moved since, null until a mesh was refreshed
+        private FaceMesh reuse(RectF box, FaceMesh faceMesh) {
+            if (faceMesh == null || this.coordinates == null || this.coordinates.length != faceMesh.getNumLandmarks() * FaceMesh.NUM_COORDINATES)
+                return null;
+            float shiftX = box.centerX() - this.refreshBox.centerX();
+            float shiftY = box.centerY() - this.refreshBox.centerY();
+            for (int i = 0; i < faceMesh.getNumLandmarks(); i++) {
+                int offset = i * FaceMesh.NUM_COORDINATES;
+                faceMesh.setLandmark(i, this.coordinates[offset] + shiftX, this.coordinates[offset + 1] + shiftY, this.coordinates[offset + 2]);
+            }
+            faceMesh.setFaceScorePresence(this.faceScorePresence);
+            return faceMesh;
+        }
+
+        //Frames since the refresh weighted by the movement relative to the face size and by the face size in the frame
+        private float getPriority() {
+            float width = Math.max(this.refreshBox.width(), 1e-6f);
+            float motion = (float) Math.hypot(this.box.centerX() - this.refreshBox.centerX(), this.box.centerY() - this.refreshBox.centerY()) / width;
+            return this.framesSinceRefresh * (motion + this.box.width());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.gravity.face.landmark.utils;
+
+import android.graphics.RectF;
+
+import com.gravity.face.core.utils.ImageFrame;
+import com.gravity.face.detection.FaceDetection;
+import com.gravity.face.detection.models.Face;
+import com.gravity.face.detection.models.FaceDetectionResult;
+import com.gravity.face.landmark.models.FaceMesh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Takes the faces of the next frame from the meshes of the last one, the detector only runs once a face is lost,
+//fewer than maxNumberOfFaces are tracked or maxTrackedFrames frames were tracked in a row.
+//Frames queued while a mesh is computed are tracked from the one before, the roi lags at most a frame behind.
+public final class LandmarkTracker implements FaceDetection.FaceTracker {
+
+    //Mesh landmarks averaged into each detector key point, in Face.Landmarks order
+    private static final int[][] KEY_POINT_LANDMARKS = {{33, 133}, {362, 263}, {1}, {13, 14}, {234}, {454}};
+
+    private final int maxNumberOfFaces;
+    private final float minTrackingConfidence;
+    private final int maxTrackedFrames;
+    //Faces of the last meshed frame, null when a face was lost
+    private volatile TrackedFace[] trackedFaces;
+    private final AtomicInteger trackedFrames;
+
+    public LandmarkTracker(int maxNumberOfFaces, float minTrackingConfidence, int maxTrackedFrames) {
+        this.maxNumberOfFaces = maxNumberOfFaces;
+        this.minTrackingConfidence = minTrackingConfidence;
+        this.maxTrackedFrames = maxTrackedFrames;
+        this.trackedFrames = new AtomicInteger();
+    }
+
+    @Override
+    public boolean track(ImageFrame imageFrame, FaceDetectionResult result) {
+        TrackedFace[] trackedFaces = this.trackedFaces;
+        if (trackedFaces == null || trackedFaces.length < this.maxNumberOfFaces ||
+                (this.maxTrackedFrames != -1 && this.trackedFrames.get() >= this.maxTrackedFrames)) {
+            this.trackedFrames.set(0);
+            return false;
+        }
+
+        this.trackedFrames.incrementAndGet();
+        for (int i = 0; i < trackedFaces.length; i++) {
+            Face face = result.obtainFace(i, KEY_POINT_LANDMARKS.length);
+            trackedFaces[i].copyTo(face);
+            result.getFaces().add(face);
+        }
+        return true;
+    }
+
+    //Meshes of a frame, null for faces without mesh. Faces under minTrackingConfidence are lost.
+    public void update(FaceMesh[] faceMeshes) {
+        List<TrackedFace> trackedFaces = new ArrayList<>(faceMeshes.length);
+        for (FaceMesh faceMesh : faceMeshes) {
+            if (faceMesh != null && faceMesh.getFaceScorePresence() >= this.minTrackingConfidence)
+                trackedFaces.add(new TrackedFace(faceMesh));
+        }
+        this.trackedFaces = trackedFaces.isEmpty() ? null : trackedFaces.toArray(new TrackedFace[0]);
+    }
+
+    //Copied out of the mesh, pooled meshes are filled again once their result is released
+    private static final class TrackedFace {
+        private final float score;
+        private final RectF relativeCoordinate;
+        private final float[] relativeKeyPoints;
+
+        private TrackedFace(FaceMesh faceMesh) {
+            this.score = faceMesh.getFaceScorePresence();
+            this.relativeCoordinate = RectTransformation.getBoundingBox(faceMesh);
+            this.relativeKeyPoints = new float[KEY_POINT_LANDMARKS.length * 2];
+            for (int i = 0; i < KEY_POINT_LANDMARKS.length; i++) {
+                for (int landmark : KEY_POINT_LANDMARKS[i]) {
+                    this.relativeKeyPoints[i * 2] += faceMesh.getX(landmark) / KEY_POINT_LANDMARKS[i].length;
+                    this.relativeKeyPoints[i * 2 + 1] += faceMesh.getY(landmark) / KEY_POINT_LANDMARKS[i].length;
+                }
+            }
+        }
+
+        private void copyTo(Face face) {
+            face.setScore(this.score);
+            face.getRelativeCoordinate().set(this.relativeCoordinate);
+            for (int i = 0; i < KEY_POINT_LANDMARKS.length; i++)
+                face.getRelativeKeyPoints().get(i).set(this.relativeKeyPoints[i * 2], this.relativeKeyPoints[i * 2 + 1]);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import android.graphics.PointF;
 import android.graphics.RectF;
 import android.util.Size;
 
+import com.gravity.face.landmark.models.FaceMesh;
+
 public final class RectTransformation {
 
     private final static float SCALE_X = 1.5f;
@@ -45,6 +47,20 @@ public final class RectTransformation {
         return result;
     }
 
+    //Relative box around the landmarks, transform turns it into the next roi like a detection box
+    public static RectF getBoundingBox(FaceMesh faceMesh) {
+        RectF result = new RectF(Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+        for (int i = 0; i < faceMesh.getNumLandmarks(); i++) {
+            float x = faceMesh.getX(i);
+            float y = faceMesh.getY(i);
+            result.left = Math.min(result.left, x);
+            result.top = Math.min(result.top, y);
+            result.right = Math.max(result.right, x);
+            result.bottom = Math.max(result.bottom, y);
+        }
+        return result;
+    }
+
     public static RectF unNormalizeRectF(RectF rect, Size imageSize) {
         RectF result = new RectF();
         result.top = rect.top * imageSize.getHeight();
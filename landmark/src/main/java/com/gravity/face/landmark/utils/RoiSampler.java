@@ -0,0 +1,75 @@
+package com.gravity.face.landmark.utils;
+
+import android.graphics.RectF;
+
+import com.gravity.face.core.utils.ImageFrame;
+
+import java.nio.ByteBuffer;
+
+//Crops, nearest neighbor resizes and normalizes a region of interest in a single pass.
+//Matches CropOp followed by ResizeOp and NormalizeOp without the intermediate bitmaps, not thread safe.
+public final class RoiSampler {
+
+    private static final int NUM_CHANNELS = 3;
+
+    private final int targetWidth;
+    private final int targetHeight;
+    private final float mean;
+    private final float std;
+    private final int[] columns;
+    private final int[] pixels;
+    private int[] row = new int[0];
+
+    public RoiSampler(int targetWidth, int targetHeight, float mean, float std) {
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.mean = mean;
+        this.std = std;
+        this.columns = new int[targetWidth];
+        this.pixels = new int[targetWidth];
+    }
+
+    public int getOutputSize() {
+        return this.targetWidth * this.targetHeight * NUM_CHANNELS * Float.BYTES;
+    }
+
+    //Writes targetHeight x targetWidth RGB floats at the output position and advances it
+    public void sample(ImageFrame source, RectF roi, ByteBuffer output) {
+        //Same clipping as CropOp
+        int x = (int) Math.max(roi.left, 0);
+        int y = (int) Math.max(roi.top, 0);
+        int width = (int) Math.min(roi.width(), source.getWidth() - x);
+        int height = (int) Math.min(roi.height(), source.getHeight() - y);
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Roi does not intersect the image, roi: " + roi);
+        if (output.remaining() < this.getOutputSize())
+            throw new IllegalArgumentException("Output buffer is too small, remaining: " + output.remaining());
+
+        for (int column = 0; column < this.targetWidth; column++)
+            this.columns[column] = x + toSource(column, width, this.targetWidth);
+        if (this.row.length < source.getWidth())
+            this.row = new int[source.getWidth()];
+
+        //Only the sampled rows are read from the frame
+        int loadedRow = -1;
+        for (int targetRow = 0; targetRow < this.targetHeight; targetRow++) {
+            int sourceRow = toSource(targetRow, height, this.targetHeight);
+            if (sourceRow != loadedRow) {
+                source.getPixels(y + sourceRow, this.columns, this.targetWidth, this.pixels, this.row);
+                loadedRow = sourceRow;
+            }
+            for (int column = 0; column < this.targetWidth; column++) {
+                int pixel = this.pixels[column];
+                output.putFloat((((pixel >> 16) & 0xFF) - this.mean) / this.std);
+                output.putFloat((((pixel >> 8) & 0xFF) - this.mean) / this.std);
+                output.putFloat(((pixel & 0xFF) - this.mean) / this.std);
+            }
+        }
+    }
+
+    //Samples at the target pixel center like an unfiltered bitmap scale
+    private static int toSource(int target, int sourceSize, int targetSize) {
+        int source = (int) ((target + 0.5f) * sourceSize / targetSize);
+        return Math.min(source, sourceSize - 1);
+    }
+}
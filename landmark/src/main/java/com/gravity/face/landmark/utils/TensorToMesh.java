@@ -4,13 +4,11 @@ import android.graphics.RectF;
 import android.util.Size;
 
 import com.gravity.face.landmark.models.FaceMesh;
-import com.gravity.face.landmark.models.Landmark;
 import com.gravity.face.landmark.models.TensorToMeshOptions;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
 
 public final class TensorToMesh {
 
@@ -26,48 +24,65 @@ public final class TensorToMesh {
 
         float rawScore = rawScores[0][0][0][0];
         float detectionScore = 1.0f / (1.0f + (float) Math.exp(-rawScore));
+        return this.process(imageSize, options, detectionScore, FloatBuffer.wrap(rawMeshes[0][0][0]), roi, null);
+    }
 
-        if (detectionScore < options.getMinScoreThreshold())
-            return null;
+    //Decodes one score and numLandmarks x numCoordinates values read from the buffer positions, which are left unchanged
+    @Nullable
+    public FaceMesh process(Size imageSize, TensorToMeshOptions options, FloatBuffer rawScores, FloatBuffer rawMeshes, RectF roi) {
+        if (rawMeshes.remaining() < options.getNumCoordinates() * options.getNumLandmarks())
+            throw new IllegalArgumentException("RawMeshes size is not correct");
+        if (rawScores.remaining() < 1)
+            throw new IllegalArgumentException("RawScores size is not correct");
 
-        FaceMesh faceMesh = new FaceMesh();
-        List<Landmark> landmarks = this.convertToLandmarks(options, rawMeshes[0][0][0]);
-        landmarks = this.projectCoordinate(options, landmarks, imageSize, roi);
-        faceMesh.setFaceScorePresence(detectionScore);
-        faceMesh.setRelativeLandmarks(landmarks);
-        return faceMesh;
+        float rawScore = rawScores.get(rawScores.position());
+        float detectionScore = 1.0f / (1.0f + (float) Math.exp(-rawScore));
+        return this.process(imageSize, options, detectionScore, rawMeshes, roi, null);
     }
 
-    private List<Landmark> convertToLandmarks(TensorToMeshOptions options, float[] rawMeshes) {
-        List<Landmark> landmarks = new ArrayList<>(options.getNumLandmarks());
-        for (int i = 0; i < options.getNumLandmarks(); i++) {
-            int offset = i * options.getNumCoordinates();
-            float x = rawMeshes[offset];
-            float y = rawMeshes[offset + 1];
-            float z = rawMeshes[offset + 2];
-            landmarks.add(new Landmark(x, y, z));
-        }
-        return landmarks;
+    //Fills faceMesh instead of allocating one, it needs numLandmarks and the precision of options
+    @Nullable
+    public FaceMesh process(Size imageSize, TensorToMeshOptions options, FloatBuffer rawScores, FloatBuffer rawMeshes, RectF roi, FaceMesh faceMesh) {
+        if (faceMesh.getNumLandmarks() != options.getNumLandmarks() || faceMesh.isHalfPrecision() != options.isHalfPrecision())
+            throw new IllegalArgumentException("FaceMesh layout does not match the options");
+        if (rawMeshes.remaining() < options.getNumCoordinates() * options.getNumLandmarks())
+            throw new IllegalArgumentException("RawMeshes size is not correct");
+        if (rawScores.remaining() < 1)
+            throw new IllegalArgumentException("RawScores size is not correct");
+
+        float rawScore = rawScores.get(rawScores.position());
+        float detectionScore = 1.0f / (1.0f + (float) Math.exp(-rawScore));
+        return this.process(imageSize, options, detectionScore, rawMeshes, roi, faceMesh);
     }
 
-    private List<Landmark> projectCoordinate(TensorToMeshOptions options, List<Landmark> landmarks, Size imageSize, RectF roi) {
+    //Decodes and projects each landmark into roi relative image coordinates in a single pass
+    @Nullable
+    private FaceMesh process(Size imageSize, TensorToMeshOptions options, float detectionScore, FloatBuffer rawMeshes, RectF roi,
+                             @Nullable FaceMesh faceMesh) {
+        if (detectionScore < options.getMinScoreThreshold())
+            return null;
+
+        //Same clipping as the crop of the model input
         int x = (int) Math.max(roi.left, 0);
         int y = (int) Math.max(roi.top, 0);
         int width = (int) Math.min(roi.width(), imageSize.getWidth() - x);
         int height = (int) Math.min(roi.height(), imageSize.getHeight() - y);
+        float multiplyX = width / options.getXScale() / imageSize.getWidth();
+        float multiplyY = height / options.getYScale() / imageSize.getHeight();
+        float offsetX = (float) x / imageSize.getWidth();
+        float offsetY = (float) y / imageSize.getHeight();
 
-        for (Landmark landmark : landmarks) {
-            landmark.x *= width / options.getXScale();
-            landmark.x += x;
-            landmark.x /= imageSize.getWidth();
-
-            landmark.y *= height / options.getYScale();
-            landmark.y += y;
-            landmark.y /= imageSize.getHeight();
-
-            landmark.z *= width / options.getXScale();
-            landmark.z /= imageSize.getWidth();
+        if (faceMesh == null)
+            faceMesh = new FaceMesh(options.getNumLandmarks(), options.isHalfPrecision());
+        int position = rawMeshes.position();
+        for (int i = 0; i < options.getNumLandmarks(); i++) {
+            int offset = position + i * options.getNumCoordinates();
+            faceMesh.setLandmark(i,
+                    rawMeshes.get(offset) * multiplyX + offsetX,
+                    rawMeshes.get(offset + 1) * multiplyY + offsetY,
+                    rawMeshes.get(offset + 2) * multiplyX);
         }
-        return landmarks;
+        faceMesh.setFaceScorePresence(detectionScore);
+        return faceMesh;
     }
 }
@@ -0,0 +1,189 @@
+package com.gravity.face.landmark.utils;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import com.gravity.face.detection.models.Face;
+import com.gravity.face.landmark.models.FaceMesh;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FaceTrackManagerTest {
+
+    private static final int NUM_LANDMARKS = 3;
+    private static final float SIZE = 0.2f;
+    private static final float TOLERANCE = 1e-5f;
+
+    @Test
+    public void movingFaceKeepsItsTrack() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(-1, 10);
+        int trackId = this.process(faceTrackManager, face(0.2f, 0.2f)).getTrackId(0);
+
+        for (int i = 1; i < 10; i++)
+            assertEquals(trackId, this.process(faceTrackManager, face(0.2f + i * 0.01f, 0.2f)).getTrackId(0));
+    }
+
+    @Test
+    public void separateFacesGetSeparateTracks() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(-1, 10);
+        FaceTrackManager.Frame frame = this.process(faceTrackManager, face(0.1f, 0.1f), face(0.6f, 0.6f));
+
+        assertNotEquals(frame.getTrackId(0), frame.getTrackId(1));
+        //Matched by overlap, not by the order of the faces
+        FaceTrackManager.Frame swapped = this.process(faceTrackManager, face(0.6f, 0.6f), face(0.1f, 0.1f));
+        assertEquals(frame.getTrackId(0), swapped.getTrackId(1));
+        assertEquals(frame.getTrackId(1), swapped.getTrackId(0));
+    }
+
+    @Test
+    public void trackSurvivesShortMissesOnly() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(-1, 10);
+        int trackId = this.process(faceTrackManager, face(0.2f, 0.2f)).getTrackId(0);
+
+        for (int i = 0; i < 5; i++)
+            this.process(faceTrackManager);
+        assertEquals(trackId, this.process(faceTrackManager, face(0.2f, 0.2f)).getTrackId(0));
+
+        for (int i = 0; i < 6; i++)
+            this.process(faceTrackManager);
+        assertNotEquals(trackId, this.process(faceTrackManager, face(0.2f, 0.2f)).getTrackId(0));
+    }
+
+    @Test
+    public void refreshesStayWithinBudget() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(1, 3);
+        Face[] faces = {face(0.0f, 0.0f), face(0.4f, 0.0f), face(0.0f, 0.4f)};
+        Set<Integer> refreshedTracks = new HashSet<>();
+
+        for (int i = 0; i < 9; i++) {
+            FaceTrackManager.Frame frame = this.process(faceTrackManager, faces);
+            int refreshed = 0;
+            for (int j = 0; j < frame.size(); j++) {
+                if (frame.isRefreshDue(j)) {
+                    refreshed++;
+                    refreshedTracks.add(frame.getTrackId(j));
+                }
+            }
+            assertEquals(1, refreshed);
+        }
+        //New tracks go first, so every face got a mesh within the first frames
+        assertEquals(3, refreshedTracks.size());
+    }
+
+    @Test
+    public void staticFaceIsRefreshedEveryInterval() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(-1, 3);
+        FaceTrackManager limited = new FaceTrackManager(1, 3);
+        StringBuilder refreshes = new StringBuilder();
+        for (int i = 0; i < 7; i++) {
+            assertTrue(this.process(faceTrackManager, face(0.2f, 0.2f)).isRefreshDue(0));
+            //The second face is small and static, the first one keeps winning the budget until the second is overdue
+            FaceTrackManager.Frame frame = this.process(limited, face(0.1f, 0.1f, 0.4f), face(0.6f, 0.6f, 0.05f));
+            refreshes.append(frame.isRefreshDue(1) ? 'R' : '-');
+        }
+        assertEquals("-R--R--", refreshes.toString());
+    }
+
+    @Test
+    public void reusedMeshFollowsTheFace() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(1, 10);
+        this.process(faceTrackManager, face(0.2f, 0.2f));
+
+        //A second face takes the budget, the first one reuses its mesh moved with its box
+        FaceTrackManager.Frame frame = faceTrackManager.update(Arrays.asList(face(0.25f, 0.22f), face(0.7f, 0.7f)));
+        assertFalse(frame.isRefreshDue(0));
+        FaceMesh[] faceMeshes = {new FaceMesh(NUM_LANDMARKS, false), mesh(0.7f, 0.7f)};
+        faceTrackManager.apply(frame, faceMeshes);
+
+        assertNotNull(faceMeshes[0]);
+        assertEquals(frame.getTrackId(0), faceMeshes[0].getTrackId());
+        for (int i = 0; i < NUM_LANDMARKS; i++) {
+            assertEquals(0.25f + i * 0.05f, faceMeshes[0].getX(i), TOLERANCE);
+            assertEquals(0.22f + i * 0.05f, faceMeshes[0].getY(i), TOLERANCE);
+        }
+        assertEquals(0.8f, faceMeshes[0].getFaceScorePresence(), 0.0f);
+    }
+
+    @Test
+    public void noMeshIsReusedBeforeTheFirstRefresh() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(1, 10);
+        FaceTrackManager.Frame frame = faceTrackManager.update(Arrays.asList(face(0.2f, 0.2f), face(0.7f, 0.7f)));
+        int due = frame.isRefreshDue(0) ? 0 : 1;
+        FaceMesh[] faceMeshes = {new FaceMesh(NUM_LANDMARKS, false), new FaceMesh(NUM_LANDMARKS, false)};
+        faceMeshes[due] = mesh(0.2f, 0.2f);
+
+        faceTrackManager.apply(frame, faceMeshes);
+        assertNull(faceMeshes[1 - due]);
+    }
+
+    //Frames meshed concurrently apply out of order, an older refresh must not replace the mesh of a newer box
+    @Test
+    public void refreshOfAnOutdatedFrameIsDropped() {
+        FaceTrackManager faceTrackManager = new FaceTrackManager(1, 10);
+        FaceTrackManager.Frame older = faceTrackManager.update(Collections.singletonList(face(0.2f, 0.2f)));
+        FaceTrackManager.Frame newer = faceTrackManager.update(Collections.singletonList(face(0.22f, 0.2f)));
+        assertTrue(older.isRefreshDue(0));
+        assertTrue(newer.isRefreshDue(0));
+
+        faceTrackManager.apply(newer, new FaceMesh[]{mesh(0.22f, 0.2f)});
+        FaceMesh[] olderMeshes = {mesh(0.2f, 0.2f)};
+        faceTrackManager.apply(older, olderMeshes);
+        //The older frame still gets its own mesh
+        assertEquals(0.2f, olderMeshes[0].getX(0), TOLERANCE);
+
+        //A new face takes the budget, the first one reuses the mesh of the newer frame
+        FaceTrackManager.Frame frame = faceTrackManager.update(Arrays.asList(face(0.23f, 0.2f), face(0.7f, 0.7f)));
+        assertFalse(frame.isRefreshDue(0));
+        FaceMesh[] faceMeshes = {new FaceMesh(NUM_LANDMARKS, false), mesh(0.7f, 0.7f)};
+        faceTrackManager.apply(frame, faceMeshes);
+        assertEquals(0.23f, faceMeshes[0].getX(0), TOLERANCE);
+    }
+
+    //Updates the tracks and applies a fresh mesh to every face due for a refresh
+    private FaceTrackManager.Frame process(FaceTrackManager faceTrackManager, Face... faces) {
+        FaceTrackManager.Frame frame = faceTrackManager.update(Arrays.asList(faces));
+        FaceMesh[] faceMeshes = new FaceMesh[faces.length];
+        for (int i = 0; i < faces.length; i++) {
+            RectF box = faces[i].getRelativeCoordinate();
+            faceMeshes[i] = frame.isRefreshDue(i) ? mesh(box.left, box.top) : new FaceMesh(NUM_LANDMARKS, false);
+        }
+        faceTrackManager.apply(frame, faceMeshes);
+        return frame;
+    }
+
+    private static FaceMesh mesh(float left, float top) {
+        FaceMesh faceMesh = new FaceMesh(NUM_LANDMARKS, false);
+        for (int i = 0; i < NUM_LANDMARKS; i++)
+            faceMesh.setLandmark(i, left + i * 0.05f, top + i * 0.05f, 0);
+        faceMesh.setFaceScorePresence(0.8f);
+        return faceMesh;
+    }
+
+    private static Face face(float left, float top) {
+        return face(left, top, SIZE);
+    }
+
+    private static Face face(float left, float top, float size) {
+        List<PointF> keyPoints = new ArrayList<>();
+        for (int i = 0; i < Face.Landmarks.values().length; i++)
+            keyPoints.add(new PointF());
+        return new Face(0.9f, new RectF(left, top, left + size, top + size), keyPoints);
+    }
+}
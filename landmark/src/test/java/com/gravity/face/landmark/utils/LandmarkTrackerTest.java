@@ -0,0 +1,131 @@
+package com.gravity.face.landmark.utils;
+
+import android.graphics.RectF;
+
+import com.gravity.face.core.utils.ImageFrame;
+import com.gravity.face.detection.models.Face;
+import com.gravity.face.detection.models.FaceDetectionResult;
+import com.gravity.face.landmark.models.FaceMesh;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class LandmarkTrackerTest {
+
+    private static final int NUM_LANDMARKS = 468;
+    private static final float MIN_TRACKING_CONFIDENCE = 0.5f;
+    private static final float TOLERANCE = 1e-5f;
+
+    private final ImageFrame imageFrame = new EmptyFrame();
+
+    @Test
+    public void detectsUntilAMeshIsKnown() {
+        LandmarkTracker landmarkTracker = new LandmarkTracker(1, MIN_TRACKING_CONFIDENCE, -1);
+
+        assertFalse(landmarkTracker.track(this.imageFrame, new FaceDetectionResult()));
+    }
+
+    @Test
+    public void tracksTheFaceOfTheLastMesh() {
+        LandmarkTracker landmarkTracker = new LandmarkTracker(1, MIN_TRACKING_CONFIDENCE, -1);
+        landmarkTracker.update(new FaceMesh[]{mesh(0.3f, 0.4f, 0.2f, 0.9f)});
+
+        FaceDetectionResult result = new FaceDetectionResult();
+        assertTrue(landmarkTracker.track(this.imageFrame, result));
+        assertEquals(1, result.getFaces().size());
+        Face face = result.getFaces().get(0);
+        RectF box = face.getRelativeCoordinate();
+        assertEquals(0.3f, box.left, TOLERANCE);
+        assertEquals(0.4f, box.top, TOLERANCE);
+        assertEquals(0.5f, box.right, TOLERANCE);
+        assertEquals(0.6f, box.bottom, TOLERANCE);
+        assertEquals(0.9f, face.getScore(), 0.0f);
+        //Key points are averaged from their mesh landmarks, which all lie in the box
+        assertEquals(Face.Landmarks.values().length, face.getRelativeKeyPoints().size());
+        for (int i = 0; i < face.getRelativeKeyPoints().size(); i++) {
+            assertTrue(box.left <= face.getRelativeKeyPoints().get(i).x && face.getRelativeKeyPoints().get(i).x <= box.right);
+            assertTrue(box.top <= face.getRelativeKeyPoints().get(i).y && face.getRelativeKeyPoints().get(i).y <= box.bottom);
+        }
+    }
+
+    @Test
+    public void lowConfidenceLosesTheFace() {
+        LandmarkTracker landmarkTracker = new LandmarkTracker(1, MIN_TRACKING_CONFIDENCE, -1);
+        landmarkTracker.update(new FaceMesh[]{mesh(0.3f, 0.4f, 0.2f, 0.9f)});
+        landmarkTracker.update(new FaceMesh[]{mesh(0.3f, 0.4f, 0.2f, 0.1f)});
+
+        assertFalse(landmarkTracker.track(this.imageFrame, new FaceDetectionResult()));
+    }
+
+    @Test
+    public void missingMeshLosesTheFace() {
+        LandmarkTracker landmarkTracker = new LandmarkTracker(1, MIN_TRACKING_CONFIDENCE, -1);
+        landmarkTracker.update(new FaceMesh[]{mesh(0.3f, 0.4f, 0.2f, 0.9f)});
+        landmarkTracker.update(new FaceMesh[]{null});
+
+        assertFalse(landmarkTracker.track(this.imageFrame, new FaceDetectionResult()));
+    }
+
+    //The detector keeps looking for more faces while fewer than maxNumberOfFaces are tracked
+    @Test
+    public void detectsWhileFacesAreMissing() {
+        LandmarkTracker landmarkTracker = new LandmarkTracker(2, MIN_TRACKING_CONFIDENCE, -1);
+        landmarkTracker.update(new FaceMesh[]{mesh(0.1f, 0.1f, 0.2f, 0.9f)});
+        assertFalse(landmarkTracker.track(this.imageFrame, new FaceDetectionResult()));
+
+        landmarkTracker.update(new FaceMesh[]{mesh(0.1f, 0.1f, 0.2f, 0.9f), mesh(0.6f, 0.6f, 0.2f, 0.9f)});
+        FaceDetectionResult result = new FaceDetectionResult();
+        assertTrue(landmarkTracker.track(this.imageFrame, result));
+        assertEquals(2, result.getFaces().size());
+    }
+
+    @Test
+    public void detectsAfterMaxTrackedFrames() {
+        LandmarkTracker landmarkTracker = new LandmarkTracker(1, MIN_TRACKING_CONFIDENCE, 3);
+        landmarkTracker.update(new FaceMesh[]{mesh(0.3f, 0.4f, 0.2f, 0.9f)});
+
+        StringBuilder frames = new StringBuilder();
+        for (int i = 0; i < 8; i++)
+            frames.append(landmarkTracker.track(this.imageFrame, new FaceDetectionResult()) ? 'T' : 'D');
+        assertEquals("TTTDTTTD", frames.toString());
+    }
+
+    //Landmarks spread over the box, the first one at its top left corner and the last one at its bottom right
+    private static FaceMesh mesh(float left, float top, float size, float faceScorePresence) {
+        FaceMesh faceMesh = new FaceMesh(NUM_LANDMARKS, false);
+        for (int i = 0; i < NUM_LANDMARKS; i++) {
+            float position = (float) i / (NUM_LANDMARKS - 1);
+            faceMesh.setLandmark(i, left + size * position, top + size * ((i * 7) % NUM_LANDMARKS) / (NUM_LANDMARKS - 1), 0);
+        }
+        faceMesh.setLandmark(NUM_LANDMARKS - 1, left + size, top + size, 0);
+        faceMesh.setFaceScorePresence(faceScorePresence);
+        return faceMesh;
+    }
+
+    private static final class EmptyFrame implements ImageFrame {
+        @Override
+        public int getWidth() {
+            return 1;
+        }
+
+        @Override
+        public int getHeight() {
+            return 1;
+        }
+
+        @Override
+        public void getPixels(int row, int[] columns, int count, int[] pixels, int[] rowBuffer) {
+        }
+
+        @Override
+        public long getByteCount() {
+            return 0;
+        }
+    }
+}